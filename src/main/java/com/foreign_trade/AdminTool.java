@@ -0,0 +1,79 @@
+package com.foreign_trade;
+
+import com.foreign_trade.dao.ShipmentSummaryDAO;
+import com.foreign_trade.service.LicenseIssuanceService;
+import com.foreign_trade.service.PaymentReconciliationService;
+import com.foreign_trade.service.ShipmentService;
+import com.foreign_trade.util.DbUtil;
+import com.itextpdf.text.DocumentException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * Maintenance tasks run from the command line, without the UI:
+ *   export-licenses [licenses.zip]          every license PDF in one ZIP file, for audits
+ *   export-shipments [shipments.csv]        every shipment as CSV
+ *   rebuild-totals                          recomputes the per-license shipment totals (while the desk is idle)
+ *   reconcile statement.csv [outcomes.csv]  marks the invoices of a bank statement paid
+ * The services only return what they did; reporting it is left to this class.
+ */
+public class AdminTool {
+
+    private static final String USAGE = "Usage: AdminTool export-licenses [licenses.zip] | export-shipments [shipments.csv] | rebuild-totals"
+            + " | reconcile statement.csv [outcomes.csv]";
+
+    public static void main(String[] args) throws SQLException, DocumentException, IOException {
+        String command = args.length > 0 ? args[0] : "";
+        String argument = args.length > 1 ? args[1] : null;
+        long start = System.currentTimeMillis();
+        String result;
+        try {
+            switch (command) {
+                case "export-licenses":
+                    result = exportLicenses(Paths.get(argument != null ? argument : "licenses.zip"));
+                    break;
+                case "export-shipments":
+                    result = exportShipments(Paths.get(argument != null ? argument : "shipments.csv"));
+                    break;
+                case "rebuild-totals":
+                    result = "Rebuilt shipment totals for " + new ShipmentSummaryDAO().rebuild() + " license(s)";
+                    break;
+                case "reconcile":
+                    if (argument == null) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    Path statement = Paths.get(argument);
+                    Path outcomes = Paths.get(args.length > 2 ? args[2] : "outcomes.csv");
+                    result = "Reconciled " + statement + " (outcomes in " + outcomes + "): "
+                            + new PaymentReconciliationService().reconcileCsv(statement, outcomes);
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    return;
+            }
+        } finally {
+            DbUtil.shutdown();
+        }
+        System.out.println(result + " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    private static String exportLicenses(Path zipFile) throws SQLException, DocumentException, IOException {
+        long documents = new LicenseIssuanceService().exportLicenseArchive(zipFile);
+        return "Exported " + documents + " license PDF(s) to " + zipFile;
+    }
+
+    private static String exportShipments(Path file) throws SQLException, IOException {
+        long rows;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            rows = new ShipmentService().exportShipmentsCsv(out);
+        }
+        return "Exported " + rows + " shipment(s) to " + file;
+    }
+}
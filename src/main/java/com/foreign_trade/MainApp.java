@@ -1,16 +1,48 @@
 package com.foreign_trade;
 
+import com.foreign_trade.dao.QueryPlanCheck;
+import com.foreign_trade.service.AsyncTaskService;
+import com.foreign_trade.service.DocumentRenderQueue;
+import com.foreign_trade.service.OverdueInvoiceSweeper;
+import com.foreign_trade.service.RenewalReminderScheduler;
+import com.foreign_trade.util.DbUtil;
+import com.foreign_trade.util.SchemaMigrator;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import java.io.IOException;
+import java.sql.SQLException;
 
 public class MainApp extends Application {
 
     private Stage primaryStage;
 
+    @Override
+    public void init() {
+        // Runs on the launcher thread, before the first screen is shown: create/upgrade tables and indexes.
+        // Every screen and background job below relies on the latest schema, so a failed migration stops the launch.
+        try {
+            SchemaMigrator.migrate();
+            if (Boolean.getBoolean("db.checkQueryPlans")) {
+                QueryPlanCheck.verify();
+            }
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+            DbUtil.shutdown();
+            throw new IllegalStateException("Schema migration failed; the application cannot start.", e);
+        }
+        // Renewal reminders are checked in the background; -Dreminder.enabled=false turns them off
+        if (Boolean.parseBoolean(System.getProperty("reminder.enabled", "true"))) {
+            RenewalReminderScheduler.getDefault().start();
+        }
+        // PENDING invoices past the payment window become OVERDUE; -Dinvoice.sweep.enabled=false turns this off
+        if (Boolean.parseBoolean(System.getProperty("invoice.sweep.enabled", "true"))) {
+            OverdueInvoiceSweeper.getDefault().start();
+        }
+    }
+
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
@@ -104,6 +136,16 @@ public class MainApp extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Stop background tasks, let queued PDFs finish, and release pooled database connections on exit
+        AsyncTaskService.shutdown();
+        DocumentRenderQueue.shutdown();
+        RenewalReminderScheduler.shutdown();
+        OverdueInvoiceSweeper.shutdown();
+        DbUtil.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
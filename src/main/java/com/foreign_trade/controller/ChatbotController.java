@@ -1,7 +1,9 @@
 package com.foreign_trade.controller;
 
 import com.foreign_trade.MainApp;
+import com.foreign_trade.service.AsyncTaskService;
 import com.foreign_trade.service.ChatbotService;
+import com.foreign_trade.service.LicenseValidityService;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.TextArea;
@@ -9,14 +11,13 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.MenuItem;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class ChatbotController {
 
@@ -24,8 +25,11 @@ public class ChatbotController {
     @FXML private TextArea chatDisplayArea;
 
     private final ChatbotService chatbotService = new ChatbotService();
+    private final LicenseValidityService validityService = new LicenseValidityService();
+    private final AsyncTaskService async = new AsyncTaskService();
 
     // --- NAVIGATION HANDLERS (ALL PUBLIC) ---
+    // Leaving a view drops the results of its outstanding reads (async.cancelAll()).
 
     private Stage getStage(Event event) {
         return (Stage) ((MenuItem) event.getSource()).getParentPopup().getOwnerWindow();
@@ -33,27 +37,32 @@ public class ChatbotController {
 
     @FXML
     public void handleNavigateToExporter(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showExporterOverview(getStage(event));
     }
 
     @FXML
     public void handleNavigateToLicense(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showLicenseView(getStage(event));
     }
 
     // FIX ADDED: The handler for the Shipment Log View menu item
     @FXML
     public void handleNavigateToShipmentLog(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showShipmentLogView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToShipmentEntry(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showShipmentEntryView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToChatbot(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showChatbotView(getStage(event));
     }
 
@@ -69,60 +78,57 @@ public class ChatbotController {
         appendChat("You: " + userInput + "\n");
         userInputField.clear();
 
-        String response;
-        String lowerInput = userInput.toLowerCase();
-
-        try {
-            if (lowerInput.contains("status of") || lowerInput.contains("valid")) {
-                response = handleLicenseValidityCheck(lowerInput);
-            } else if (lowerInput.contains("expiring") || lowerInput.contains("reminders")) {
-                response = handleReminderCheck();
-            } else {
-                response = chatbotService.getStaticFAQAnswer(userInput);
-            }
-        } catch (SQLException e) {
-            response = "BOT: Automated reminder system failed to query database due to a connection error.";
-            System.err.println("Chatbot DB error: " + e.getMessage());
-        } catch (Exception e) {
-            response = "BOT ERROR: Sorry, a system error occurred. Please try again.";
-            System.err.println("Chatbot runtime error: " + e.getMessage());
-        }
-
-        appendChat("BOT: " + response + "\n\n");
+        // Answer in the background; the input stays disabled so replies arrive in order
+        userInputField.setDisable(true);
+        async.run(() -> chatbotService.reply(userInput),
+                response -> {
+                    appendChat("BOT: " + response + "\n\n");
+                    userInputField.setDisable(false);
+                    userInputField.requestFocus();
+                },
+                error -> {
+                    String response;
+                    if (error instanceof SQLException) {
+                        response = "BOT: Automated reminder system failed to query database due to a connection error.";
+                        System.err.println("Chatbot DB error: " + error.getMessage());
+                    } else {
+                        response = "BOT ERROR: Sorry, a system error occurred. Please try again.";
+                        System.err.println("Chatbot runtime error: " + error.getMessage());
+                    }
+                    appendChat("BOT: " + response + "\n\n");
+                    userInputField.setDisable(false);
+                });
     }
 
-    // --- LOGIC METHODS ---
-
-    private String handleLicenseValidityCheck(String userInput) {
-        String licenseNumber = extractLicenseNumber(userInput);
-        if (licenseNumber.isEmpty()) {
-            return "Please provide the exact license number you want to check.";
-        }
-        return chatbotService.checkLicenseValidity(licenseNumber);
-    }
-
-    private String handleReminderCheck() throws SQLException {
-        LocalDate now = LocalDate.now();
-        List<String> reminders = chatbotService.generateRenewalReminders(30);
-
-        if (reminders.isEmpty()) {
-            return "No licenses are currently expiring within the next 30 days.";
+    /**
+     * Checks every license number in the first column of a CSV file and writes the verdicts next to it
+     * as <name>-checked.csv.
+     */
+    @FXML
+    public void handleCheckCsv(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Select a CSV file of license numbers");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+        File file = chooser.showOpenDialog(chatDisplayArea.getScene().getWindow());
+        if (file == null) {
+            return;
         }
 
-        return "FOUND EXPIRING LICENSES:\n" + reminders.stream().collect(Collectors.joining("\n"));
+        Path input = file.toPath();
+        String name = file.getName().replaceFirst("\\.[^.]*$", "");
+        Path output = input.resolveSibling(name + "-checked.csv");
+        LocalDate today = LocalDate.now();
+        appendChat("You: [checking " + file.getName() + "]\n");
+        async.run(() -> validityService.checkCsv(input, output, today),
+                results -> appendChat("BOT: " + LicenseValidityService.summarize(results, today)
+                        + "\nResults written to " + output + "\n\n"),
+                error -> {
+                    System.err.println("CSV license check failed: " + error.getMessage());
+                    appendChat("BOT: Sorry, the file could not be checked: " + error.getMessage() + "\n\n");
+                });
     }
 
     // --- UTILITIES ---
-    private String extractLicenseNumber(String input) {
-        Pattern pattern = Pattern.compile("[A-Z]{2,4}-\\d{4}-\\d{4,5}");
-        Matcher matcher = pattern.matcher(input.toUpperCase());
-
-        if (matcher.find()) {
-            return matcher.group(0);
-        }
-        return "";
-    }
-
     private void appendChat(String message) {
         chatDisplayArea.appendText(message);
     }
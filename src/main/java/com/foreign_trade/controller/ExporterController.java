@@ -3,6 +3,7 @@ package com.foreign_trade.controller;
 import com.foreign_trade.MainApp;
 import com.foreign_trade.dao.ExporterDAO;
 import com.foreign_trade.model.Exporter;
+import com.foreign_trade.service.AsyncTaskService;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.event.ActionEvent;
@@ -25,6 +26,7 @@ public class ExporterController {
     private TextField countryField;
 
     private final ExporterDAO exporterDAO = new ExporterDAO();
+    private final AsyncTaskService async = new AsyncTaskService();
 
     // --- CORE LOGIC (Changed to public) ---
 
@@ -38,31 +40,36 @@ public class ExporterController {
 
             Exporter newExporter = new Exporter(firmName, iecNumber, contactPerson, country);
 
-            try {
-                exporterDAO.insertExporter(newExporter);
-
-                // 1. Show simple success alert
-                showAlert(Alert.AlertType.INFORMATION, "Success",
-                        "Exporter Registered!",
-                        "Firm " + firmName + " registered successfully.");
-
-                clearFields();
-
-                // 2. Safely get the Stage for navigation prompt
-                Stage mainStage = (Stage) firmNameField.getScene().getWindow();
-                showNavigationOptions(mainStage);
-
-            } catch (SQLException e) {
-                String errorMessage = e.getMessage().contains("Duplicate entry")
-                        ? "IEC Number already registered."
-                        : "Database error occurred.";
-
-                showAlert(Alert.AlertType.ERROR, "Registration Failed",
-                        errorMessage,
-                        "Error details: " + e.getMessage());
-            } catch (Exception e) {
-                System.err.println("Unexpected Error During Registration: " + e.getMessage());
-            }
+            // Insert off the FX thread; the alerts are shown once the database has answered.
+            // A write runs to completion even if the user navigates away meanwhile.
+            async.runToCompletion(() -> exporterDAO.insertExporter(newExporter),
+                    id -> {
+                        // 1. Show simple success alert
+                        showAlert(Alert.AlertType.INFORMATION, "Success",
+                                "Exporter Registered!",
+                                "Firm " + firmName + " registered successfully.");
+
+                        clearFields();
+
+                        // 2. Safely get the Stage for navigation prompt (unless the user has already moved on)
+                        Stage mainStage = (Stage) firmNameField.getScene().getWindow();
+                        if (mainStage != null) {
+                            showNavigationOptions(mainStage);
+                        }
+                    },
+                    error -> {
+                        if (error instanceof SQLException) {
+                            String errorMessage = error.getMessage().contains("Duplicate entry")
+                                    ? "IEC Number already registered."
+                                    : "Database error occurred.";
+
+                            showAlert(Alert.AlertType.ERROR, "Registration Failed",
+                                    errorMessage,
+                                    "Error details: " + error.getMessage());
+                        } else {
+                            System.err.println("Unexpected Error During Registration: " + error.getMessage());
+                        }
+                    });
         }
     }
 
@@ -88,6 +95,7 @@ public class ExporterController {
     }
 
     // --- NAVIGATION HANDLERS (Menu Bar - ALL PUBLIC) ---
+    // Leaving a view drops the results of its outstanding reads (async.cancelAll()); writes run to completion.
 
     private Stage getStage(Event event) {
         // Helper method to safely extract the Stage from a MenuItem event
@@ -96,26 +104,31 @@ public class ExporterController {
 
     @FXML
     public void handleNavigateToExporter(ActionEvent event) { // <-- CHANGED TO PUBLIC
+        async.cancelAll();
         new MainApp().showExporterOverview(getStage(event));
     }
 
     @FXML
     public void handleNavigateToLicense(ActionEvent event) { // <-- CHANGED TO PUBLIC
+        async.cancelAll();
         new MainApp().showLicenseView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToShipmentEntry(ActionEvent event) { // <-- CHANGED TO PUBLIC
+        async.cancelAll();
         new MainApp().showShipmentEntryView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToShipmentLog(ActionEvent event) { // <-- CHANGED TO PUBLIC
+        async.cancelAll();
         new MainApp().showShipmentLogView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToChatbot(ActionEvent event) { // <-- CHANGED TO PUBLIC
+        async.cancelAll();
         new MainApp().showChatbotView(getStage(event));
     }
 
@@ -4,19 +4,22 @@ import com.foreign_trade.MainApp;
 import com.foreign_trade.dao.ExporterDAO;
 import com.foreign_trade.model.License;
 import com.foreign_trade.model.Exporter;
+import com.foreign_trade.service.AsyncTaskService;
+import com.foreign_trade.service.DocumentRenderQueue;
+import com.foreign_trade.service.LicenseDocumentStore;
 import com.foreign_trade.service.LicenseIssuanceService;
-import com.foreign_trade.service.PdfGenerator;
-import com.itextpdf.text.DocumentException;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.stage.Stage;
 
-import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 public class LicenseController {
@@ -25,11 +28,17 @@ public class LicenseController {
     @FXML private TextField expiryDaysField;
     @FXML private Label exporterFirmNameLabel;
     @FXML private Label newLicenseNumberLabel;
+    @FXML private Button issueLicenseButton;
+    @FXML private TextField reprintLicenseField;
+    @FXML private Button reprintLicenseButton;
 
     // --- Backend Instances ---
     private final LicenseIssuanceService issuanceService = new LicenseIssuanceService();
     private final ExporterDAO exporterDAO = new ExporterDAO();
-    private final PdfGenerator pdfGenerator = new PdfGenerator();
+    private final AsyncTaskService async = new AsyncTaskService();
+
+    // License whose PDF the label is waiting for (FX thread only)
+    private String pendingLicenseNumber;
 
     @FXML
     private void initialize() {
@@ -44,40 +53,40 @@ public class LicenseController {
     }
 
     private void populateIecComboBox() {
-        try {
-            List<Exporter> exporters = exporterDAO.getAllExporters();
-
-            // Clear existing items just in case it was called before cleanup
-            iecNumberComboBox.getItems().clear();
-
-            // Map Exporter objects to a list of just IEC strings
-            List<String> iecNumbers = exporters.stream()
-                    .map(Exporter::getIecNumber)
-                    .collect(Collectors.toList());
-
-            // Re-populate the ComboBox
-            iecNumberComboBox.getItems().addAll(iecNumbers);
-
-            // Automatically select the first item if the list is not empty
-            if (!iecNumbers.isEmpty()) {
-                iecNumberComboBox.getSelectionModel().selectFirst();
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Failed to populate IEC ComboBox: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Load Exporters", "Cannot load IEC list: " + e.getMessage());
-        }
+        async.run(exporterDAO::getAllExporters,
+                exporters -> {
+                    // Clear existing items just in case it was called before cleanup
+                    iecNumberComboBox.getItems().clear();
+
+                    // Map Exporter objects to a list of just IEC strings
+                    List<String> iecNumbers = exporters.stream()
+                            .map(Exporter::getIecNumber)
+                            .collect(Collectors.toList());
+
+                    // Re-populate the ComboBox
+                    iecNumberComboBox.getItems().addAll(iecNumbers);
+
+                    // Automatically select the first item if the list is not empty
+                    if (!iecNumbers.isEmpty()) {
+                        iecNumberComboBox.getSelectionModel().selectFirst();
+                    }
+                },
+                error -> {
+                    System.err.println("Failed to populate IEC ComboBox: " + error.getMessage());
+                    showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Load Exporters", "Cannot load IEC list: " + error.getMessage());
+                });
     }
 
     private void displayExporterDetails(String iec) {
-        try {
-            Exporter exporter = exporterDAO.getExporterByIec(iec);
-            if (exporter != null) {
-                exporterFirmNameLabel.setText("Firm: " + exporter.getFirmName() + " (" + exporter.getCountry() + ")");
-            }
-        } catch (SQLException e) {
-            exporterFirmNameLabel.setText("Error loading firm details.");
-        }
+        exporterFirmNameLabel.setText("Loading firm details...");
+        async.run(() -> exporterDAO.getExporterByIec(iec),
+                exporter -> {
+                    // Ignore late answers for an IEC that is no longer selected
+                    if (exporter != null && iec.equals(iecNumberComboBox.getValue())) {
+                        exporterFirmNameLabel.setText("Firm: " + exporter.getFirmName() + " (" + exporter.getCountry() + ")");
+                    }
+                },
+                error -> exporterFirmNameLabel.setText("Error loading firm details."));
     }
 
 
@@ -93,34 +102,144 @@ public class LicenseController {
 
         try {
             expiryDays = Integer.parseInt(expiryDaysField.getText().trim());
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.ERROR, "Input Error", null, "Expiry period must be a valid number.");
+            return;
+        }
 
-            // 1. DB Issuance
-            License newLicense = issuanceService.issueNewLicense(iecNumber, expiryDays);
+        // Prevent double issuance while the request is in flight
+        issueLicenseButton.setDisable(true);
+        newLicenseNumberLabel.setText("Issuing license...");
+
+        // A write: runs to completion (and reports) even if the user navigates away meanwhile
+        async.runToCompletion(() -> {
+                    // 1. DB Issuance (the only step the user waits for)
+                    License newLicense = issuanceService.issueNewLicense(iecNumber, expiryDays);
+
+                    // 2. Fetch Firm Name for PDF
+                    Exporter exporter = exporterDAO.getExporterByIec(iecNumber);
+                    String firmName = (exporter != null) ? exporter.getFirmName() : LicenseIssuanceService.UNKNOWN_FIRM;
+
+                    // 3. Queue PDF Generation (may wait for room in the queue; we are on a background thread).
+                    // The license is committed by now, so nothing below may turn this into a failed issuance.
+                    try {
+                        DocumentRenderQueue.getDefault().submit(newLicense, firmName, new PdfReadyCallback());
+                        return new IssuedLicense(newLicense, null, null);
+                    } catch (RejectedExecutionException e) {
+                        // Queue full (REJECT policy) or shut down: render it here instead of dropping it
+                        try {
+                            return new IssuedLicense(newLicense, LicenseDocumentStore.getDefault().getOrRender(newLicense, firmName), null);
+                        } catch (Exception renderError) { // DocumentException, IOException
+                            return new IssuedLicense(newLicense, null, renderError);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt(); // Shutting down
+                        return new IssuedLicense(newLicense, null, new IllegalStateException("the application is shutting down", e));
+                    }
+                },
+                issued -> {
+                    issueLicenseButton.setDisable(false);
+                    pendingLicenseNumber = issued.license.getLicenseNumber();
+
+                    // 4. Display Success Message (the file path follows once a queued PDF is rendered)
+                    if (issued.pdfError != null) {
+                        newLicenseNumberLabel.setText("SUCCESS! License Number: " + pendingLicenseNumber + " (PDF not generated)");
+                        showAlert(Alert.AlertType.WARNING, "License Issued", "New license successfully created.", "License Number: " + pendingLicenseNumber + "\nThe PDF document could not be generated (" + issued.pdfError.getMessage() + "). Use Reprint PDF to generate it.");
+                    } else if (issued.document != null) {
+                        newLicenseNumberLabel.setText("SUCCESS! License Number: " + pendingLicenseNumber + " (File saved to: " + issued.document + ")");
+                        showAlert(Alert.AlertType.INFORMATION, "License Issued", "New license successfully created.", "License Number: " + pendingLicenseNumber + "\nPDF saved to: " + issued.document);
+                    } else {
+                        newLicenseNumberLabel.setText("SUCCESS! License Number: " + pendingLicenseNumber + " (Generating PDF...)");
+                        showAlert(Alert.AlertType.INFORMATION, "License Issued", "New license successfully created.", "License Number: " + pendingLicenseNumber + "\nThe PDF document is being generated.");
+                    }
+                },
+                error -> {
+                    issueLicenseButton.setDisable(false);
+                    newLicenseNumberLabel.setText("[New License Number will appear here]");
+
+                    if (error instanceof LicenseIssuanceService.PrerequisiteException) {
+                        showAlert(Alert.AlertType.ERROR, "Prerequisite Failed", "License Rejected", error.getMessage());
+                    } else if (error instanceof SQLException) {
+                        showAlert(Alert.AlertType.ERROR, "Database Error", "Issuance Failed", "Database error: " + error.getMessage());
+                    } else {
+                        showAlert(Alert.AlertType.ERROR, "Error", "Issuance Failed", error.getMessage());
+                    }
+                });
+    }
 
-            // 2. Fetch Firm Name for PDF
-            Exporter exporter = exporterDAO.getExporterByIec(iecNumber);
-            String firmName = (exporter != null) ? exporter.getFirmName() : "Unknown Firm";
+    /**
+     * Returns the PDF of an existing license: the stored copy if there is one, otherwise it is rendered now.
+     */
+    @FXML
+    public void handleReprintLicenseButton() {
+        String licenseNumber = reprintLicenseField.getText().trim();
+        if (licenseNumber.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "Input Missing", null, "Please enter the license number to reprint.");
+            return;
+        }
 
-            // 3. PDF Generation
-            String filePath = pdfGenerator.generateLicensePdf(newLicense, firmName);
+        reprintLicenseButton.setDisable(true);
+        async.run(() -> issuanceService.reprintLicense(licenseNumber),
+                document -> {
+                    reprintLicenseButton.setDisable(false);
+                    newLicenseNumberLabel.setText("License Number: " + licenseNumber + " (File saved to: " + document + ")");
+                },
+                error -> {
+                    reprintLicenseButton.setDisable(false);
+                    if (error instanceof LicenseIssuanceService.PrerequisiteException) {
+                        showAlert(Alert.AlertType.ERROR, "Not Found", "Reprint Failed", error.getMessage());
+                    } else if (error instanceof SQLException) {
+                        showAlert(Alert.AlertType.ERROR, "Database Error", "Reprint Failed", "Database error: " + error.getMessage());
+                    } else {
+                        showAlert(Alert.AlertType.ERROR, "Document Error", "Reprint Failed", "Could not create document for license " + licenseNumber + ": " + error.getMessage());
+                    }
+                });
+    }
 
-            // 4. Display Success Message
-            newLicenseNumberLabel.setText("SUCCESS! License Number: " + newLicense.getLicenseNumber() + " (File saved to: " + filePath + ")");
-            showAlert(Alert.AlertType.INFORMATION, "License Issued", "New license successfully created.", "PDF document saved to: " + filePath);
+    /**
+     * Result of the background issuance task: the PDF is either queued (both null), already
+     * rendered (document), or could not be generated (pdfError); the license is issued in every case.
+     */
+    private static class IssuedLicense {
+        final License license;
+        final Path document;
+        final Exception pdfError;
+
+        IssuedLicense(License license, Path document, Exception pdfError) {
+            this.license = license;
+            this.document = document;
+            this.pdfError = pdfError;
+        }
+    }
 
-        } catch (NumberFormatException e) {
-            showAlert(Alert.AlertType.ERROR, "Input Error", null, "Expiry period must be a valid number.");
-        } catch (LicenseIssuanceService.PrerequisiteException e) {
-            showAlert(Alert.AlertType.ERROR, "Prerequisite Failed", "License Rejected", e.getMessage());
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", "Issuance Failed", "Database error: " + e.getMessage());
-        } catch (DocumentException | IOException e) {
-            // Catch PDF specific errors
-            showAlert(Alert.AlertType.ERROR, "Document Error", "PDF Generation Failed", "Could not create document: " + e.getMessage());
+    /**
+     * Called by the render queue's worker thread; updates newLicenseNumberLabel on the FX thread,
+     * unless another license has been issued from this view in the meantime.
+     */
+    private class PdfReadyCallback implements DocumentRenderQueue.RenderCallback {
+        @Override
+        public void onRendered(License license, Path document) {
+            Platform.runLater(() -> {
+                if (license.getLicenseNumber().equals(pendingLicenseNumber)) {
+                    newLicenseNumberLabel.setText("SUCCESS! License Number: " + license.getLicenseNumber() + " (File saved to: " + document + ")");
+                }
+            });
+        }
+
+        @Override
+        public void onFailed(License license, Exception error) {
+            Platform.runLater(() -> {
+                if (license.getLicenseNumber().equals(pendingLicenseNumber)) {
+                    newLicenseNumberLabel.setText("SUCCESS! License Number: " + license.getLicenseNumber() + " (PDF generation failed)");
+                }
+                // Catch PDF specific errors
+                showAlert(Alert.AlertType.ERROR, "Document Error", "PDF Generation Failed", "Could not create document for license " + license.getLicenseNumber() + ": " + error.getMessage());
+            });
         }
     }
 
     // --- NAVIGATION HANDLERS ---
+    // Leaving a view drops the results of its outstanding reads (async.cancelAll()); writes run to completion.
 
     private Stage getStage(Event event) {
         return (Stage) ((MenuItem) event.getSource()).getParentPopup().getOwnerWindow();
@@ -128,17 +247,20 @@ public class LicenseController {
 
     @FXML
     public void handleNavigateToExporter(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showExporterOverview(getStage(event));
     }
 
     @FXML
     public void handleNavigateToLicense(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showLicenseView(getStage(event));
     }
 
     // --- FIX: ADDED MISSING METHOD ---
     @FXML
     public void handleNavigateToShipmentLog(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showShipmentLogView(getStage(event));
     }
 
@@ -146,16 +268,19 @@ public class LicenseController {
     // It should now call the correct log view method.
     @FXML
     public void handleNavigateToShipment(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showShipmentLogView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToShipmentEntry(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showShipmentEntryView(getStage(event));
     }
 
     @FXML
     public void handleNavigateToChatbot(ActionEvent event) {
+        async.cancelAll();
         new MainApp().showChatbotView(getStage(event));
     }
 
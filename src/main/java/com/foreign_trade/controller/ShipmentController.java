@@ -3,8 +3,11 @@ package com.foreign_trade.controller;
 import com.foreign_trade.MainApp;
 import com.foreign_trade.dao.LicenseDAO;
 import com.foreign_trade.dao.ShipmentDAO;
+import com.foreign_trade.model.Invoice;
 import com.foreign_trade.model.License;
 import com.foreign_trade.model.Shipment;
+import com.foreign_trade.model.ShipmentLogEntry;
+import com.foreign_trade.service.AsyncTaskService;
 import com.foreign_trade.service.ShipmentService;
 import com.foreign_trade.service.InsuranceException;
 
@@ -17,10 +20,12 @@ import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
 import java.time.LocalDate; // CRITICAL: Required for DatePicker and Model
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ShipmentController {
 
@@ -34,20 +39,36 @@ public class ShipmentController {
     @FXML private CheckBox hasInsuranceCheckbox;
 
     // --- FXML Components for Log View ---
-    @FXML private TableView<Shipment> shipmentTable;
-    @FXML private TableColumn<Shipment, Integer> idColumn;
-    @FXML private TableColumn<Shipment, String> productColumn;
-    @FXML private TableColumn<Shipment, String> destinationColumn;
-    @FXML private TableColumn<Shipment, Shipment.ShipmentStatus> statusColumn;
-    @FXML private TableColumn<Shipment, Double> costColumn;
-    @FXML private TableColumn<Shipment, Boolean> insuranceColumn;
-    @FXML private TableColumn<Shipment, LocalDate> dateColumn;
+    @FXML private TableView<ShipmentLogEntry> shipmentTable;
+    @FXML private TableColumn<ShipmentLogEntry, Integer> idColumn;
+    @FXML private TableColumn<ShipmentLogEntry, String> productColumn;
+    @FXML private TableColumn<ShipmentLogEntry, String> destinationColumn;
+    @FXML private TableColumn<ShipmentLogEntry, Shipment.ShipmentStatus> statusColumn;
+    @FXML private TableColumn<ShipmentLogEntry, Double> costColumn;
+    @FXML private TableColumn<ShipmentLogEntry, Boolean> insuranceColumn;
+    @FXML private TableColumn<ShipmentLogEntry, LocalDate> dateColumn;
+    @FXML private TableColumn<ShipmentLogEntry, Double> invoiceAmountColumn;
+    @FXML private TableColumn<ShipmentLogEntry, Invoice.PaymentStatus> paymentStatusColumn;
+    @FXML private TableColumn<ShipmentLogEntry, LocalDate> paymentDateColumn;
+    @FXML private ComboBox<String> sortOrderComboBox;
+    @FXML private Button previousPageButton;
+    @FXML private Button nextPageButton;
+    @FXML private Label pageLabel;
 
     // --- Backend Instances (Instantiated ONCE at class level) ---
     private final ShipmentService shipmentService = new ShipmentService();
     private final LicenseDAO licenseDAO = new LicenseDAO();
     private final ShipmentDAO shipmentDAO = new ShipmentDAO(); // Used for direct logging
-    private ObservableList<Shipment> shipmentData = FXCollections.observableArrayList();
+    private final AsyncTaskService async = new AsyncTaskService();
+    private ObservableList<ShipmentLogEntry> shipmentData = FXCollections.observableArrayList();
+
+    // --- Paging State (Log View keeps only one page of rows in memory) ---
+    private static final int PAGE_SIZE = 100;
+    private int currentLicenseId = -1;
+    private Shipment currentPageCursor; // Last row of the previous page; null on the first page
+    private final List<Shipment> previousPageCursors = new ArrayList<>(); // Used by "Previous"
+    private boolean hasNextPage = false;
+    private CompletableFuture<?> pageLoad; // In-flight page query, cancelled when the user moves on
 
 
     @FXML
@@ -80,28 +101,40 @@ public class ShipmentController {
         costColumn.setCellValueFactory(new PropertyValueFactory<>("totalCost"));
         insuranceColumn.setCellValueFactory(new PropertyValueFactory<>("hasInsurance"));
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("exportDate"));
+        // Invoice columns come with the page (one join query); they stay empty for shipments without an invoice
+        invoiceAmountColumn.setCellValueFactory(new PropertyValueFactory<>("invoiceAmount"));
+        paymentStatusColumn.setCellValueFactory(new PropertyValueFactory<>("paymentStatus"));
+        paymentDateColumn.setCellValueFactory(new PropertyValueFactory<>("paymentDate"));
 
         shipmentTable.setItems(shipmentData);
+
+        sortOrderComboBox.getItems().addAll("Shipment ID", "Export Date");
+        sortOrderComboBox.getSelectionModel().selectFirst();
+        updatePagingControls();
     }
 
     private void populateLicenseComboBox() {
-        try {
-            List<License> licenses = licenseDAO.getAllLicenses();
-            List<String> licenseNumbers = licenses.stream()
-                    .map(License::getLicenseNumber)
-                    .collect(Collectors.toList());
-            licenseIdComboBox.getItems().addAll(licenseNumbers);
-
-            // Only auto-select and load if the table view is present (ShipmentLogView)
-            if (shipmentTable != null && !licenseNumbers.isEmpty()) {
-                licenseIdComboBox.getSelectionModel().selectFirst();
-                handleLicenseSelection();
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Failed to populate IEC ComboBox: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Load Exporters", "Cannot load IEC list: " + e.getMessage());
-        }
+        async.run(() -> {
+                    // Stream from the cursor so only the license numbers are kept in memory
+                    try (Stream<License> licenses = licenseDAO.streamAllLicenses()) {
+                        return licenses
+                                .map(License::getLicenseNumber)
+                                .collect(Collectors.toList());
+                    }
+                },
+                licenseNumbers -> {
+                    licenseIdComboBox.getItems().addAll(licenseNumbers);
+
+                    // Only auto-select and load if the table view is present (ShipmentLogView)
+                    if (shipmentTable != null && !licenseNumbers.isEmpty()) {
+                        licenseIdComboBox.getSelectionModel().selectFirst();
+                        handleLicenseSelection();
+                    }
+                },
+                error -> {
+                    System.err.println("Failed to populate IEC ComboBox: " + error.getMessage());
+                    showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Load Exporters", "Cannot load IEC list: " + error.getMessage());
+                });
     }
 
     @FXML
@@ -109,7 +142,10 @@ public class ShipmentController {
         String licenseNumber = licenseIdComboBox.getValue();
 
         if (shipmentTable != null) { // Only run filtering logic if on the Log View
+            cancelPageLoad();
             shipmentData.clear();
+            currentLicenseId = -1;
+            resetPaging();
         }
 
         if (licenseNumber == null || licenseNumber.isEmpty()) {
@@ -117,16 +153,129 @@ public class ShipmentController {
         }
 
         if (shipmentTable != null) {
-            try {
-                License license = licenseDAO.getLicenseByNumber(licenseNumber);
+            ShipmentService.PageOrder order = getPageOrder();
+            setPagingDisabled();
+            pageLoad = async.run(() -> {
+                        License license = licenseDAO.getLicenseByNumber(licenseNumber);
+                        if (license == null) {
+                            return null;
+                        }
+                        return new LoadedPage(license.getLicenseId(),
+                                shipmentService.getShipmentLogPage(license.getLicenseId(), order, null, PAGE_SIZE + 1));
+                    },
+                    this::showPage,
+                    error -> {
+                        updatePagingControls();
+                        showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to filter shipments.", error.getMessage());
+                    });
+        }
+    }
+
+    // --- PAGING (Keyset pages of PAGE_SIZE rows) ---
+
+    @FXML
+    private void handleNextPage() {
+        if (!hasNextPage || shipmentData.isEmpty()) {
+            return;
+        }
+        Shipment nextCursor = shipmentData.get(shipmentData.size() - 1);
+        loadPage(nextCursor, () -> {
+            previousPageCursors.add(currentPageCursor);
+            currentPageCursor = nextCursor;
+        });
+    }
+
+    @FXML
+    private void handlePreviousPage() {
+        if (previousPageCursors.isEmpty()) {
+            return;
+        }
+        Shipment previousCursor = previousPageCursors.get(previousPageCursors.size() - 1);
+        loadPage(previousCursor, () -> {
+            previousPageCursors.remove(previousPageCursors.size() - 1);
+            currentPageCursor = previousCursor;
+        });
+    }
+
+    @FXML
+    private void handleSortOrderChange() {
+        resetPaging();
+        loadPage(null, () -> { });
+    }
 
-                if (license != null) {
-                    shipmentData.addAll(shipmentService.getShipmentRecordsByLicenseId(license.getLicenseId()));
-                }
+    /**
+     * Loads the page that starts after the given cursor in the background.
+     * onLoaded updates the paging state, and only runs if the query succeeds.
+     */
+    private void loadPage(Shipment cursor, Runnable onLoaded) {
+        if (currentLicenseId == -1) {
+            return;
+        }
+        cancelPageLoad();
+        int licenseId = currentLicenseId;
+        ShipmentService.PageOrder order = getPageOrder();
+        setPagingDisabled();
+
+        // Ask for one extra row to find out whether a next page exists
+        pageLoad = async.run(() -> new LoadedPage(licenseId, shipmentService.getShipmentLogPage(licenseId, order, cursor, PAGE_SIZE + 1)),
+                page -> {
+                    onLoaded.run();
+                    showPage(page);
+                },
+                error -> {
+                    updatePagingControls();
+                    showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to load shipment page.", error.getMessage());
+                });
+    }
+
+    private void showPage(LoadedPage page) {
+        if (page != null) {
+            currentLicenseId = page.licenseId;
+            hasNextPage = page.rows.size() > PAGE_SIZE;
+            shipmentData.setAll(hasNextPage ? page.rows.subList(0, PAGE_SIZE) : page.rows);
+        }
+        updatePagingControls();
+    }
+
+    private void cancelPageLoad() {
+        if (pageLoad != null) {
+            pageLoad.cancel(true);
+            pageLoad = null;
+        }
+    }
+
+    private void resetPaging() {
+        currentPageCursor = null;
+        previousPageCursors.clear();
+        hasNextPage = false;
+        updatePagingControls();
+    }
+
+    private ShipmentService.PageOrder getPageOrder() {
+        return sortOrderComboBox.getSelectionModel().getSelectedIndex() == 1
+                ? ShipmentService.PageOrder.BY_EXPORT_DATE
+                : ShipmentService.PageOrder.BY_ID;
+    }
+
+    private void updatePagingControls() {
+        pageLabel.setText("Page " + (previousPageCursors.size() + 1));
+        previousPageButton.setDisable(previousPageCursors.isEmpty());
+        nextPageButton.setDisable(!hasNextPage);
+    }
 
-            } catch (SQLException e) {
-                showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to filter shipments.", e.getMessage());
-            }
+    private void setPagingDisabled() {
+        previousPageButton.setDisable(true);
+        nextPageButton.setDisable(true);
+    }
+
+    /** One page of rows fetched in the background (PAGE_SIZE + 1 rows at most). */
+    private static class LoadedPage {
+        final int licenseId;
+        final List<ShipmentLogEntry> rows;
+
+        LoadedPage(int licenseId, List<ShipmentLogEntry> rows) {
+            this.licenseId = licenseId;
+            this.rows = rows;
         }
     }
 
@@ -140,72 +289,82 @@ public class ShipmentController {
             return;
         }
 
+        double quantity;
+        double totalCost;
         try {
-            double quantity = Double.parseDouble(quantityField.getText());
-            double totalCost = Double.parseDouble(costField.getText());
-            boolean hasInsurance = hasInsuranceCheckbox.isSelected();
-
-            License license = licenseDAO.getLicenseByNumber(licenseNumber);
-            int licenseId = (license != null) ? license.getLicenseId() : -1;
-
-            if (licenseId == -1) {
-                showAlert(Alert.AlertType.ERROR, "License Error", "License Not Found", "Could not retrieve ID for selected license number.");
-                return;
-            }
-
-            Shipment newShipment = new Shipment(
-                    licenseId,
-                    productNameField.getText(),
-                    "Origin Placeholder",
-                    destinationField.getText(),
-                    quantity,
-                    totalCost,
-                    dateField.getValue(),
-                    hasInsurance
-            );
-
-            // Log and Validate Shipment
-            int newId = shipmentDAO.insertAndValidateShipment(newShipment);
-
-            if (hasInsurance) {
-                showAlert(Alert.AlertType.INFORMATION, "Success", "Shipment Logged & Ready", "Shipment " + newId + " is ready for export.");
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Shipment Cancelled", "Insurance Required",
-                        "Shipment " + newId + " was cancelled: No insurance found.");
-            }
-
-            // Optional: Auto-switch to the Log View after success
-            // Stage stage = (Stage) licenseIdComboBox.getScene().getWindow();
-            // new MainApp().showShipmentLogView(stage);
-
+            quantity = Double.parseDouble(quantityField.getText());
+            totalCost = Double.parseDouble(costField.getText());
         } catch (NumberFormatException e) {
             showAlert(Alert.AlertType.ERROR, "Input Error", null, "Quantity/Cost must be valid numbers.");
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to log shipment.", e.getMessage());
+            return;
         }
+        boolean hasInsurance = hasInsuranceCheckbox.isSelected();
+        String productName = productNameField.getText();
+        String destination = destinationField.getText();
+        LocalDate exportDate = dateField.getValue();
+
+        // A write: runs to completion (and reports) even if the user navigates away meanwhile
+        async.runToCompletion(() -> {
+                    License license = licenseDAO.getLicenseByNumber(licenseNumber);
+                    int licenseId = (license != null) ? license.getLicenseId() : -1;
+
+                    if (licenseId == -1) {
+                        return -1;
+                    }
+
+                    Shipment newShipment = new Shipment(
+                            licenseId,
+                            productName,
+                            "Origin Placeholder",
+                            destination,
+                            quantity,
+                            totalCost,
+                            exportDate,
+                            hasInsurance
+                    );
+
+                    // Log and Validate Shipment
+                    return shipmentDAO.insertAndValidateShipment(newShipment);
+                },
+                newId -> {
+                    if (newId == -1) {
+                        showAlert(Alert.AlertType.ERROR, "License Error", "License Not Found", "Could not retrieve ID for selected license number.");
+                    } else if (hasInsurance) {
+                        showAlert(Alert.AlertType.INFORMATION, "Success", "Shipment Logged & Ready", "Shipment " + newId + " is ready for export.");
+                    } else {
+                        showAlert(Alert.AlertType.ERROR, "Shipment Cancelled", "Insurance Required",
+                                "Shipment " + newId + " was cancelled: No insurance found.");
+                    }
+
+                    // Optional: Auto-switch to the Log View after success
+                    // Stage stage = (Stage) licenseIdComboBox.getScene().getWindow();
+                    // new MainApp().showShipmentLogView(stage);
+                },
+                error -> showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to log shipment.", error.getMessage()));
     }
 
 
     // --- NAVIGATION HANDLERS ---
+    // Leaving a view drops the results of its outstanding reads (async.cancelAll()); writes run to completion.
 
     private Stage getStage(Event event) {
         return (Stage) ((MenuItem) event.getSource()).getParentPopup().getOwnerWindow();
     }
 
     @FXML
-    private void handleNavigateToExporter(ActionEvent event) { new MainApp().showExporterOverview(getStage(event)); }
+    private void handleNavigateToExporter(ActionEvent event) { async.cancelAll(); new MainApp().showExporterOverview(getStage(event)); }
 
     @FXML
-    private void handleNavigateToLicense(ActionEvent event) { new MainApp().showLicenseView(getStage(event)); }
+    private void handleNavigateToLicense(ActionEvent event) { async.cancelAll(); new MainApp().showLicenseView(getStage(event)); }
 
     @FXML
-    private void handleNavigateToShipmentEntry(ActionEvent event) { new MainApp().showShipmentEntryView(getStage(event)); }
+    private void handleNavigateToShipmentEntry(ActionEvent event) { async.cancelAll(); new MainApp().showShipmentEntryView(getStage(event)); }
 
     @FXML
-    private void handleNavigateToShipmentLog(ActionEvent event) { new MainApp().showShipmentLogView(getStage(event)); }
+    private void handleNavigateToShipmentLog(ActionEvent event) { async.cancelAll(); new MainApp().showShipmentLogView(getStage(event)); }
 
     @FXML
-    private void handleNavigateToChatbot(ActionEvent event) { new MainApp().showChatbotView(getStage(event)); }
+    private void handleNavigateToChatbot(ActionEvent event) { async.cancelAll(); new MainApp().showChatbotView(getStage(event)); }
 
     // --- Utility Methods ---
     private void showAlert(Alert.AlertType type, String title, String header, String content) {
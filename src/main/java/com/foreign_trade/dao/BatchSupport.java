@@ -0,0 +1,118 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Shared JDBC batching logic for the DAO insertAll(...) methods.
+ */
+class BatchSupport {
+
+    /** Rows sent per executeBatch() call unless the caller asks otherwise. */
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** Binds one row's values onto the prepared INSERT statement. */
+    interface RowBinder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    /** Extra work done in the insert transaction, after every row is written and before the commit. */
+    interface CommitHook {
+        void beforeCommit(Connection connection, int[] ids) throws SQLException;
+
+        /** Commits the transaction; the default just calls connection.commit(). */
+        default void commit(Connection connection) throws SQLException {
+            connection.commit();
+        }
+    }
+
+    /** Maximum number of values bound into one IN (...) list. */
+    static final int MAX_IN_LIST = 500;
+
+    private BatchSupport() { }
+
+    /** Returns "?, ?, ?" with n placeholders, for IN (...) lists. */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Inserts all rows in a single transaction, flushing a JDBC batch every chunkSize rows.
+     * Either every row is committed or none is.
+     * @return The generated keys, in the same order as rows.
+     */
+    static <T> int[] insertAll(String sql, List<T> rows, int chunkSize, RowBinder<T> binder) throws SQLException {
+        return insertAll(sql, rows, chunkSize, binder, null);
+    }
+
+    /**
+     * Same as insertAll(sql, rows, chunkSize, binder), running the hook (if not null) inside the transaction.
+     */
+    static <T> int[] insertAll(String sql, List<T> rows, int chunkSize, RowBinder<T> binder, CommitHook hook)
+            throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        int[] ids = new int[rows.size()];
+        if (rows.isEmpty()) {
+            return ids;
+        }
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            connection.setAutoCommit(false); // Start transaction
+            statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+            int flushedUpTo = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                binder.bind(statement, rows.get(i));
+                statement.addBatch();
+
+                if (i + 1 - flushedUpTo == chunkSize || i == rows.size() - 1) {
+                    statement.executeBatch();
+                    flushedUpTo = readKeys(statement, ids, flushedUpTo, i + 1);
+                }
+            }
+
+            if (hook != null) {
+                hook.beforeCommit(connection, ids);
+                hook.commit(connection);
+            } else {
+                connection.commit(); // Commit transaction
+            }
+        } catch (SQLException e) {
+            if (connection != null) connection.rollback();
+            throw e;
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return ids;
+    }
+
+    private static int readKeys(PreparedStatement statement, int[] ids, int from, int to) throws SQLException {
+        ResultSet generatedKeys = null;
+        int next = from;
+        try {
+            generatedKeys = statement.getGeneratedKeys();
+            while (next < to && generatedKeys.next()) {
+                ids[next++] = generatedKeys.getInt(1);
+            }
+        } finally {
+            if (generatedKeys != null) generatedKeys.close();
+        }
+        if (next != to) {
+            throw new SQLException("Expected " + (to - from) + " generated keys but the driver returned " + (next - from));
+        }
+        return to;
+    }
+}
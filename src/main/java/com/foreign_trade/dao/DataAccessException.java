@@ -0,0 +1,19 @@
+package com.foreign_trade.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Unchecked wrapper for an SQLException raised while a streamed result is being consumed
+ * (Stream and Consumer callbacks cannot throw checked exceptions).
+ */
+public class DataAccessException extends RuntimeException {
+
+    public DataAccessException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -1,18 +1,31 @@
 package com.foreign_trade.dao;
 
 import com.foreign_trade.model.Exporter;
+import com.foreign_trade.util.CacheStats;
 import com.foreign_trade.util.DbUtil;
+import com.foreign_trade.util.LruCache;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 public class ExporterDAO {
 
     private static final String INSERT_EXPORTER = "INSERT INTO Exporter (firm_name, iec_number, contact_person, country) VALUES (?, ?, ?, ?)";
-    private static final String SELECT_BY_IEC = "SELECT * FROM Exporter WHERE iec_number = ?";
+    static final String SELECT_BY_IEC = "SELECT * FROM Exporter WHERE iec_number = ?";
+    static final String SELECT_BY_IEC_LIST = "SELECT * FROM Exporter WHERE iec_number IN (%s)";
+    static final String SELECT_BY_ID = "SELECT * FROM Exporter WHERE exporter_id = ?";
     private static final String SELECT_ALL_EXPORTERS = "SELECT * FROM Exporter";
 
+    // Read-through cache for IEC lookups, shared by all ExporterDAO instances (every controller creates its own DAO).
+    // Callers get copies, so changing a returned Exporter never changes what the cache serves.
+    private static final LruCache<String, Exporter> EXPORTER_BY_IEC_CACHE = new LruCache<>("exporterByIec",
+            Integer.getInteger("cache.exporter.maxSize", 1000), Long.getLong("cache.exporter.ttlMs", 300_000L));
+
     // --- C: Create (Insert) ---
     public int insertExporter(Exporter exporter) throws SQLException {
         Connection connection = null;
@@ -37,17 +50,55 @@ public class ExporterDAO {
                     id = generatedKeys.getInt(1);
                     exporter.setExporterId(id);
                 }
+                EXPORTER_BY_IEC_CACHE.invalidate(exporter.getIecNumber());
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (generatedKeys != null) generatedKeys.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return id;
     }
 
-    // --- R: Read (Retrieve by IEC) ---
+    // --- C: Create (Batch Insert, e.g. month-end customs feed) ---
+    /**
+     * Inserts many exporters in one transaction using JDBC batching.
+     * Generated IDs are written back onto each Exporter.
+     * @return The generated IDs, in list order.
+     */
+    public int[] insertAll(List<Exporter> exporters) throws SQLException {
+        return insertAll(exporters, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as insertAll(exporters), flushing a batch every chunkSize rows.
+     */
+    public int[] insertAll(List<Exporter> exporters, int chunkSize) throws SQLException {
+        int[] ids = BatchSupport.insertAll(INSERT_EXPORTER, exporters, chunkSize, (statement, exporter) -> {
+            statement.setString(1, exporter.getFirmName());
+            statement.setString(2, exporter.getIecNumber());
+            statement.setString(3, exporter.getContactPerson());
+            statement.setString(4, exporter.getCountry());
+        });
+        for (int i = 0; i < ids.length; i++) {
+            exporters.get(i).setExporterId(ids[i]);
+            EXPORTER_BY_IEC_CACHE.invalidate(exporters.get(i).getIecNumber());
+        }
+        return ids;
+    }
+
+    // --- R: Read (Retrieve by IEC, cached) ---
     public Exporter getExporterByIec(String iecNumber) throws SQLException {
+        Exporter exporter = EXPORTER_BY_IEC_CACHE.get(iecNumber, this::loadExporterByIec);
+        return exporter != null ? new Exporter(exporter) : null;
+    }
+
+    /** Hit/miss/eviction counters of the IEC lookup cache. */
+    public static CacheStats getCacheStats() {
+        return EXPORTER_BY_IEC_CACHE.getStats();
+    }
+
+    private Exporter loadExporterByIec(String iecNumber) throws SQLException {
         Exporter exporter = null;
         Connection connection = null;
         PreparedStatement statement = null;
@@ -60,23 +111,86 @@ public class ExporterDAO {
             resultSet = statement.executeQuery();
 
             if (resultSet.next()) {
-                // Map the ResultSet data to the Exporter object
-                exporter = new Exporter(
-                        resultSet.getInt("exporter_id"),
-                        resultSet.getString("firm_name"),
-                        resultSet.getString("iec_number"),
-                        resultSet.getString("contact_person"),
-                        resultSet.getString("country")
-                );
+                exporter = mapExporter(resultSet);
             }
         } finally {
-            DbUtil.closeConnection(connection);
+            if (resultSet != null) resultSet.close();
             if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return exporter;
+    }
+
+    // --- R: Read (Retrieve by ID, e.g. the exporter of a license) ---
+    public Exporter getExporterById(int exporterId) throws SQLException {
+        Exporter exporter = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(SELECT_BY_ID);
+            statement.setInt(1, exporterId);
+            resultSet = statement.executeQuery();
+
+            if (resultSet.next()) {
+                exporter = mapExporter(resultSet);
+            }
+        } finally {
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return exporter;
     }
 
+    // --- R: Read Many (Retrieve by a list of IECs, for bulk issuance) ---
+    /**
+     * Looks up many exporters at once: cached entries are served from memory and the rest
+     * are fetched with chunked IN (...) queries instead of one round trip per IEC.
+     * @return IEC number -> Exporter, for the IECs that exist.
+     */
+    public Map<String, Exporter> getExportersByIec(Collection<String> iecNumbers) throws SQLException {
+        Map<String, Exporter> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String iec : new LinkedHashSet<>(iecNumbers)) {
+            Exporter cached = EXPORTER_BY_IEC_CACHE.getIfPresent(iec);
+            if (cached != null) {
+                found.put(iec, new Exporter(cached));
+            } else {
+                missing.add(iec);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += BatchSupport.MAX_IN_LIST) {
+            List<String> chunk = missing.subList(from, Math.min(from + BatchSupport.MAX_IN_LIST, missing.size()));
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = DbUtil.getConnection();
+                statement = connection.prepareStatement(String.format(SELECT_BY_IEC_LIST, BatchSupport.placeholders(chunk.size())));
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i));
+                }
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Exporter exporter = mapExporter(resultSet);
+                    found.put(exporter.getIecNumber(), new Exporter(exporter));
+                    EXPORTER_BY_IEC_CACHE.put(exporter.getIecNumber(), exporter);
+                }
+            } finally {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                DbUtil.closeConnection(connection);
+            }
+        }
+        return found;
+    }
+
     // --- R: Read All (For Populating ComboBoxes in UI) ---
     public List<Exporter> getAllExporters() throws SQLException {
         List<Exporter> exporters = new ArrayList<>();
@@ -90,19 +204,24 @@ public class ExporterDAO {
             resultSet = statement.executeQuery(SELECT_ALL_EXPORTERS);
 
             while (resultSet.next()) {
-                exporters.add(new Exporter(
-                        resultSet.getInt("exporter_id"),
-                        resultSet.getString("firm_name"),
-                        resultSet.getString("iec_number"),
-                        resultSet.getString("contact_person"),
-                        resultSet.getString("country")
-                ));
+                exporters.add(mapExporter(resultSet));
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return exporters;
     }
-}
\ No newline at end of file
+
+    // --- Mapping ---
+    private static Exporter mapExporter(ResultSet resultSet) throws SQLException {
+        return new Exporter(
+                resultSet.getInt("exporter_id"),
+                resultSet.getString("firm_name"),
+                resultSet.getString("iec_number"),
+                resultSet.getString("contact_person"),
+                resultSet.getString("country")
+        );
+    }
+}
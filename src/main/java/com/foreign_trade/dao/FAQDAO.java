@@ -0,0 +1,133 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.model.FAQ;
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class FAQDAO {
+
+    private static final String INSERT_FAQ = "INSERT INTO FAQ (question, answer) VALUES (?, ?)";
+    private static final String UPDATE_FAQ = "UPDATE FAQ SET question = ?, answer = ? WHERE faq_id = ?";
+    private static final String DELETE_FAQ = "DELETE FROM FAQ WHERE faq_id = ?";
+    private static final String SELECT_ALL_FAQS = "SELECT faq_id, question, answer FROM FAQ";
+
+    // Notified after every successful write, so in-memory copies of the table (search index, caches) can refresh
+    private static final List<Runnable> CHANGE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a callback that runs (on the writing thread) after any FAQ insert, update or delete.
+     */
+    public static void addChangeListener(Runnable listener) {
+        CHANGE_LISTENERS.add(listener);
+    }
+
+    // --- C: Create (Insert) ---
+    public int insertFAQ(FAQ faq) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet generatedKeys = null;
+        int id = -1;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(INSERT_FAQ, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, faq.getQuestion());
+            statement.setString(2, faq.getAnswer());
+
+            if (statement.executeUpdate() > 0) {
+                generatedKeys = statement.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    id = generatedKeys.getInt(1);
+                    faq.setFaqId(id);
+                }
+            }
+        } finally {
+            if (generatedKeys != null) generatedKeys.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        fireChanged();
+        return id;
+    }
+
+    // --- U: Update ---
+    public boolean updateFAQ(FAQ faq) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        boolean updated;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(UPDATE_FAQ);
+            statement.setString(1, faq.getQuestion());
+            statement.setString(2, faq.getAnswer());
+            statement.setInt(3, faq.getFaqId());
+            updated = statement.executeUpdate() > 0;
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        if (updated) fireChanged();
+        return updated;
+    }
+
+    // --- D: Delete ---
+    public boolean deleteFAQ(int faqId) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        boolean deleted;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(DELETE_FAQ);
+            statement.setInt(1, faqId);
+            deleted = statement.executeUpdate() > 0;
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        if (deleted) fireChanged();
+        return deleted;
+    }
+
+    // --- R: Read All (For building the chatbot search index) ---
+    public List<FAQ> getAllFAQs() throws SQLException {
+        List<FAQ> faqs = new ArrayList<>();
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(SELECT_ALL_FAQS);
+
+            while (resultSet.next()) {
+                faqs.add(new FAQ(
+                        resultSet.getInt("faq_id"),
+                        resultSet.getString("question"),
+                        resultSet.getString("answer")
+                ));
+            }
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return faqs;
+    }
+
+    private static void fireChanged() {
+        for (Runnable listener : CHANGE_LISTENERS) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("FAQ change listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -2,19 +2,37 @@ package com.foreign_trade.dao;
 
 import com.foreign_trade.model.Invoice;
 import com.foreign_trade.model.Invoice.PaymentStatus;
+import com.foreign_trade.model.PaymentRecord;
+import com.foreign_trade.model.PaymentRecord.Outcome;
 import com.foreign_trade.util.DbUtil;
+import com.foreign_trade.util.ReconciliationStats;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class InvoiceDAO {
 
     private static final String INSERT_INVOICE =
             "INSERT INTO Invoice (shipment_id, amount, payment_date, payment_status) VALUES (?, ?, ?, ?)";
-    private static final String UPDATE_STATUS =
+    static final String UPDATE_STATUS =
             "UPDATE Invoice SET payment_status = ?, payment_date = ? WHERE shipment_id = ?";
-    private static final String SELECT_BY_SHIPMENT =
+    static final String SELECT_BY_SHIPMENT =
             "SELECT * FROM Invoice WHERE shipment_id = ?";
+    static final String LOCK_BY_SHIPMENT_LIST =
+            "SELECT shipment_id, payment_status FROM Invoice WHERE shipment_id IN (%s) FOR UPDATE";
+    // Oldest first, and bounded, so each statement locks a limited range of the (payment_status, issued_at) index
+    static final String MARK_OVERDUE =
+            "UPDATE Invoice SET payment_status = 'OVERDUE' WHERE payment_status = 'PENDING' AND issued_at < ? " +
+                    "ORDER BY issued_at LIMIT ?";
+    private static final String UPDATE_UNPAID =
+            "UPDATE Invoice SET payment_status = ?, payment_date = ? WHERE shipment_id = ? AND payment_status <> 'PAID'";
 
 
     // --- C: Create (Insert New Invoice) ---
@@ -44,13 +62,39 @@ public class InvoiceDAO {
                 }
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (generatedKeys != null) generatedKeys.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return id;
     }
 
+    // --- C: Create (Batch Insert) ---
+    /**
+     * Inserts many invoices in one transaction using JDBC batching.
+     * Generated IDs are written back onto each Invoice.
+     * @return The generated IDs, in list order.
+     */
+    public int[] insertAll(List<Invoice> invoices) throws SQLException {
+        return insertAll(invoices, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as insertAll(invoices), flushing a batch every chunkSize rows.
+     */
+    public int[] insertAll(List<Invoice> invoices, int chunkSize) throws SQLException {
+        int[] ids = BatchSupport.insertAll(INSERT_INVOICE, invoices, chunkSize, (statement, invoice) -> {
+            statement.setInt(1, invoice.getShipmentId());
+            statement.setDouble(2, invoice.getAmount());
+            statement.setDate(3, invoice.getPaymentDate() != null ? Date.valueOf(invoice.getPaymentDate()) : null);
+            statement.setString(4, invoice.getPaymentStatus().name());
+        });
+        for (int i = 0; i < ids.length; i++) {
+            invoices.get(i).setInvoiceId(ids[i]);
+        }
+        return ids;
+    }
+
     // --- U: Update (Mark Invoice as Paid) ---
     public void updatePaymentStatus(int shipmentId, PaymentStatus newStatus, LocalDate paymentDate) throws SQLException {
         Connection connection = null;
@@ -63,8 +107,150 @@ public class InvoiceDAO {
             statement.setDate(2, Date.valueOf(paymentDate));
             statement.setInt(3, shipmentId);
             statement.executeUpdate();
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+    }
+
+    // --- U: Update (Overdue Sweep) ---
+    /**
+     * Marks up to limit PENDING invoices issued before the given day as OVERDUE, oldest first,
+     * in one statement (and one short auto-committed transaction).
+     * @return The number of invoices marked; less than limit means none are left.
+     */
+    public int markOverdue(LocalDate issuedBefore, int limit) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(MARK_OVERDUE);
+            statement.setTimestamp(1, Timestamp.valueOf(issuedBefore.atStartOfDay()));
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+    }
+
+    // --- U: Update (Bank Statement Reconciliation) ---
+    /**
+     * Same as reconcilePayments(records.iterator(), DEFAULT_CHUNK_SIZE, null).
+     */
+    public ReconciliationStats reconcilePayments(List<PaymentRecord> records) throws SQLException {
+        return reconcilePayments(records.iterator(), BatchSupport.DEFAULT_CHUNK_SIZE, null);
+    }
+
+    /**
+     * Applies payment records (e.g. a bank statement) in chunks of chunkSize, one transaction per chunk:
+     * the invoices of the chunk's shipments are locked and read with one query, then the changes go out
+     * as one JDBC batch, so a chunk costs three round trips instead of one per record.
+     * A PAID invoice is final and is never changed; each record's outcome is written back onto it and
+     * passed to the listener (if not null) once its chunk is committed.
+     * If a chunk fails, it is rolled back and the exception thrown; earlier chunks stay committed and
+     * records without an outcome were not applied.
+     */
+    public ReconciliationStats reconcilePayments(Iterator<PaymentRecord> records, int chunkSize,
+                                                 Consumer<PaymentRecord> listener) throws SQLException {
+        if (chunkSize < 1 || chunkSize > BatchSupport.MAX_IN_LIST) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + BatchSupport.MAX_IN_LIST + ": " + chunkSize);
+        }
+        long start = System.nanoTime();
+        long[] counts = new long[Outcome.values().length];
+        long total = 0;
+        int transactions = 0;
+        Connection connection = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            connection.setAutoCommit(false);
+            List<PaymentRecord> chunk = new ArrayList<>(chunkSize);
+            while (records.hasNext()) {
+                chunk.clear();
+                while (chunk.size() < chunkSize && records.hasNext()) {
+                    chunk.add(records.next());
+                }
+                try {
+                    reconcileChunk(connection, chunk);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    for (PaymentRecord record : chunk) {
+                        record.setOutcome(null);
+                    }
+                    throw e;
+                }
+                transactions++;
+                total += chunk.size();
+                for (PaymentRecord record : chunk) {
+                    counts[record.getOutcome().ordinal()]++;
+                    if (listener != null) {
+                        listener.accept(record);
+                    }
+                }
+            }
         } finally {
             DbUtil.closeConnection(connection);
+        }
+        return new ReconciliationStats(total, counts[Outcome.UPDATED.ordinal()], counts[Outcome.NOT_FOUND.ordinal()],
+                counts[Outcome.ALREADY_PAID.ordinal()], transactions, System.nanoTime() - start);
+    }
+
+    // Classifies and applies one chunk inside the caller's transaction
+    private static void reconcileChunk(Connection connection, List<PaymentRecord> chunk) throws SQLException {
+        LinkedHashSet<Integer> shipmentIds = new LinkedHashSet<>();
+        for (PaymentRecord record : chunk) {
+            shipmentIds.add(record.getShipmentId());
+        }
+
+        // Shipment -> whether it still has an invoice that is not PAID (absent: no invoice at all)
+        Map<Integer, Boolean> unpaid = new HashMap<>();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(String.format(LOCK_BY_SHIPMENT_LIST, BatchSupport.placeholders(shipmentIds.size())));
+            int index = 1;
+            for (int shipmentId : shipmentIds) {
+                statement.setInt(index++, shipmentId);
+            }
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                boolean isUnpaid = !PaymentStatus.PAID.name().equals(resultSet.getString("payment_status"));
+                unpaid.merge(resultSet.getInt("shipment_id"), isUnpaid, Boolean::logicalOr);
+            }
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        }
+
+        statement = null;
+        try {
+            for (PaymentRecord record : chunk) {
+                Boolean hasUnpaid = unpaid.get(record.getShipmentId());
+                if (hasUnpaid == null) {
+                    record.setOutcome(Outcome.NOT_FOUND);
+                } else if (!hasUnpaid) {
+                    record.setOutcome(Outcome.ALREADY_PAID);
+                } else {
+                    if (statement == null) {
+                        statement = connection.prepareStatement(UPDATE_UNPAID);
+                    }
+                    statement.setString(1, record.getStatus().name());
+                    statement.setDate(2, record.getPaymentDate() != null ? Date.valueOf(record.getPaymentDate()) : null);
+                    statement.setInt(3, record.getShipmentId());
+                    statement.addBatch();
+                    record.setOutcome(Outcome.UPDATED);
+                    if (record.getStatus() == PaymentStatus.PAID) {
+                        unpaid.put(record.getShipmentId(), false); // A repeat in the same statement is then ALREADY_PAID
+                    }
+                }
+            }
+            if (statement != null) {
+                statement.executeBatch();
+            }
+        } finally {
             if (statement != null) statement.close();
         }
     }
@@ -95,9 +281,9 @@ public class InvoiceDAO {
                 );
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return invoice;
     }
@@ -1,19 +1,45 @@
 package com.foreign_trade.dao;
 
 import com.foreign_trade.model.License;
+import com.foreign_trade.util.CacheStats;
 import com.foreign_trade.util.DbUtil;
+import com.foreign_trade.util.LruCache;
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class LicenseDAO {
 
     private static final String INSERT_LICENSE = "INSERT INTO License (exporter_id, license_number, issue_date, expiry_date, signature_url) VALUES (?, ?, ?, ?, ?)";
-    private static final String SELECT_BY_NUMBER = "SELECT * FROM License WHERE license_number = ?";
-    private static final String SELECT_EXPIRING = "SELECT * FROM License WHERE expiry_date BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL ? DAY)";
+    static final String SELECT_BY_NUMBER = "SELECT * FROM License WHERE license_number = ?";
+    static final String SELECT_EXPIRING = "SELECT * FROM License WHERE expiry_date BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL ? DAY) ORDER BY expiry_date";
+    static final String SELECT_BY_NUMBER_LIST = "SELECT * FROM License WHERE license_number IN (%s)";
     private static final String SELECT_ALL_LICENSES = "SELECT * FROM License"; // The new query constant
 
+    // Read-through cache for license-number lookups, shared by all LicenseDAO instances.
+    // Callers get copies, so changing a returned License never changes what the cache serves.
+    private static final LruCache<String, License> LICENSE_BY_NUMBER_CACHE = new LruCache<>("licenseByNumber",
+            Integer.getInteger("cache.license.maxSize", 5000), Long.getLong("cache.license.ttlMs", 300_000L));
+
+    // Notified after licenses are committed, so in-memory views of the table (caches, indexes) stay current
+    private static final List<Consumer<List<License>>> INSERT_LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a callback that runs (on the writing thread) with the licenses of every committed insert.
+     * The License objects are shared, so listeners must not modify them.
+     */
+    public static void addInsertListener(Consumer<List<License>> listener) {
+        INSERT_LISTENERS.add(listener);
+    }
+
     // --- C: Create (Insert) ---
     public int insertLicense(License license) throws SQLException {
         Connection connection = null;
@@ -40,17 +66,103 @@ public class LicenseDAO {
                     id = generatedKeys.getInt(1);
                     license.setLicenseId(id);
                 }
+                LICENSE_BY_NUMBER_CACHE.invalidate(license.getLicenseNumber());
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (generatedKeys != null) generatedKeys.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
+        if (id > 0) fireInserted(Collections.singletonList(license));
         return id;
     }
 
-    // --- R: Read (Retrieve by License Number) ---
+    // --- C: Create (Batch Insert) ---
+    /**
+     * Inserts many licenses in one transaction using JDBC batching.
+     * Generated IDs are written back onto each License.
+     * @return The generated IDs, in list order.
+     */
+    public int[] insertAll(List<License> licenses) throws SQLException {
+        return insertAll(licenses, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as insertAll(licenses), flushing a batch every chunkSize rows.
+     */
+    public int[] insertAll(List<License> licenses, int chunkSize) throws SQLException {
+        int[] ids = BatchSupport.insertAll(INSERT_LICENSE, licenses, chunkSize, (statement, license) -> {
+            statement.setInt(1, license.getExporterId());
+            statement.setString(2, license.getLicenseNumber());
+            statement.setDate(3, Date.valueOf(license.getIssueDate()));
+            statement.setDate(4, Date.valueOf(license.getExpiryDate()));
+            statement.setString(5, license.getSignatureUrl());
+        });
+        for (int i = 0; i < ids.length; i++) {
+            licenses.get(i).setLicenseId(ids[i]);
+            LICENSE_BY_NUMBER_CACHE.invalidate(licenses.get(i).getLicenseNumber());
+        }
+        if (ids.length > 0) fireInserted(licenses);
+        return ids;
+    }
+
+    // --- R: Read (Retrieve by License Number, cached) ---
     public License getLicenseByNumber(String licenseNumber) throws SQLException {
+        License license = LICENSE_BY_NUMBER_CACHE.get(licenseNumber, this::loadLicenseByNumber);
+        return license != null ? new License(license) : null;
+    }
+
+    /**
+     * Looks up many license numbers at once: cached licenses are served from the cache and the rest
+     * are read in chunked IN (...) queries.
+     * @return The licenses found, keyed by their uppercased number; unknown numbers are absent.
+     */
+    public Map<String, License> getLicensesByNumber(Collection<String> licenseNumbers) throws SQLException {
+        Map<String, License> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String number : new LinkedHashSet<>(licenseNumbers)) {
+            License cached = LICENSE_BY_NUMBER_CACHE.getIfPresent(number);
+            if (cached != null) {
+                found.put(number.toUpperCase(), new License(cached));
+            } else {
+                missing.add(number);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += BatchSupport.MAX_IN_LIST) {
+            List<String> chunk = missing.subList(from, Math.min(from + BatchSupport.MAX_IN_LIST, missing.size()));
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = DbUtil.getConnection();
+                statement = connection.prepareStatement(String.format(SELECT_BY_NUMBER_LIST, BatchSupport.placeholders(chunk.size())));
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i));
+                }
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    License license = mapLicense(resultSet);
+                    found.put(license.getLicenseNumber().toUpperCase(), new License(license));
+                    LICENSE_BY_NUMBER_CACHE.put(license.getLicenseNumber(), license);
+                }
+            } finally {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                DbUtil.closeConnection(connection);
+            }
+        }
+        return found;
+    }
+
+    /** Hit/miss/eviction counters of the license-number lookup cache. */
+    public static CacheStats getCacheStats() {
+        return LICENSE_BY_NUMBER_CACHE.getStats();
+    }
+
+    private License loadLicenseByNumber(String licenseNumber) throws SQLException {
         License license = null;
         Connection connection = null;
         PreparedStatement statement = null;
@@ -63,19 +175,12 @@ public class LicenseDAO {
             resultSet = statement.executeQuery();
 
             if (resultSet.next()) {
-                license = new License(
-                        resultSet.getInt("license_id"),
-                        resultSet.getInt("exporter_id"),
-                        resultSet.getString("license_number"),
-                        resultSet.getDate("issue_date").toLocalDate(),
-                        resultSet.getDate("expiry_date").toLocalDate(),
-                        resultSet.getString("signature_url")
-                );
+                license = mapLicense(resultSet);
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return license;
     }
@@ -96,26 +201,41 @@ public class LicenseDAO {
             resultSet = statement.executeQuery(SELECT_ALL_LICENSES); // Uses the new constant
 
             while (resultSet.next()) {
-                licenses.add(new License(
-                        resultSet.getInt("license_id"),
-                        resultSet.getInt("exporter_id"),
-                        resultSet.getString("license_number"),
-                        resultSet.getDate("issue_date").toLocalDate(),
-                        resultSet.getDate("expiry_date").toLocalDate(),
-                        resultSet.getString("signature_url")
-                ));
+                licenses.add(mapLicense(resultSet));
             }
         } finally {
             // Ensure resources are closed
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return licenses;
     }
 
 
+    // --- R: Stream All Licenses (Reports/Exports; constant memory) ---
+    /**
+     * Streams every license straight from a server-side cursor instead of materialising a list.
+     * The stream holds a pooled connection until it is closed, so always use try-with-resources.
+     * SQL errors while reading rows surface as DataAccessException.
+     */
+    public Stream<License> streamAllLicenses() throws SQLException {
+        return ResultSetStream.open(SELECT_ALL_LICENSES, null, LicenseDAO::mapLicense);
+    }
+
+    /**
+     * Callback variant of streamAllLicenses(); the connection is released when this returns.
+     * @return The number of licenses delivered to the callback.
+     */
+    public long forEachLicense(Consumer<License> callback) throws SQLException {
+        return ResultSetStream.forEach(SELECT_ALL_LICENSES, null, LicenseDAO::mapLicense, callback);
+    }
+
     // --- Utility: Get Licenses Expiring Soon (for Chatbot Reminder) ---
+    /**
+     * Licenses expiring between today and today + days, earliest first, read with one range query on
+     * idx_license_expiry. "Today" is the database's CURDATE().
+     */
     public List<License> getLicensesExpiringInDays(int days) throws SQLException {
         List<License> expiringLicenses = new ArrayList<>();
         Connection connection = null;
@@ -129,20 +249,35 @@ public class LicenseDAO {
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-                expiringLicenses.add(new License(
-                        resultSet.getInt("license_id"),
-                        resultSet.getInt("exporter_id"),
-                        resultSet.getString("license_number"),
-                        resultSet.getDate("issue_date").toLocalDate(),
-                        resultSet.getDate("expiry_date").toLocalDate(),
-                        resultSet.getString("signature_url")
-                ));
+                expiringLicenses.add(mapLicense(resultSet));
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return expiringLicenses;
     }
-}
\ No newline at end of file
+
+    // --- Mapping ---
+    private static License mapLicense(ResultSet resultSet) throws SQLException {
+        return new License(
+                resultSet.getInt("license_id"),
+                resultSet.getInt("exporter_id"),
+                resultSet.getString("license_number"),
+                resultSet.getDate("issue_date").toLocalDate(),
+                resultSet.getDate("expiry_date").toLocalDate(),
+                resultSet.getString("signature_url")
+        );
+    }
+
+    private static void fireInserted(List<License> licenses) {
+        for (Consumer<List<License>> listener : INSERT_LISTENERS) {
+            try {
+                listener.accept(licenses);
+            } catch (RuntimeException e) {
+                System.err.println("License insert listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
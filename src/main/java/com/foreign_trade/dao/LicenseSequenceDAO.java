@@ -0,0 +1,109 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+
+/**
+ * Reserves blocks of license serial numbers from the license_sequence table (one row per prefix and year).
+ * A block is reserved in one short transaction; the numbers inside it are then handed out in memory
+ * by LicenseNumberAllocator, so concurrent app instances never receive the same number.
+ */
+public class LicenseSequenceDAO {
+
+    /** First serial of a new prefix/year (keeps the historical 5-digit format). */
+    public static final int FIRST_SERIAL = 10000;
+
+    // Serialization failure: InnoDB rolled the transaction back to break a deadlock
+    private static final String DEADLOCK_SQL_STATE = "40001";
+
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT next_value FROM license_sequence WHERE prefix = ? AND seq_year = ? FOR UPDATE";
+    private static final String UPDATE_NEXT =
+            "UPDATE license_sequence SET next_value = ? WHERE prefix = ? AND seq_year = ?";
+    private static final String INSERT_SEQUENCE =
+            "INSERT INTO license_sequence (prefix, seq_year, next_value) VALUES (?, ?, ?)";
+    // Licenses issued before the sequence existed used random serials; start above the highest one
+    private static final String SELECT_MAX_EXISTING =
+            "SELECT MAX(CAST(SUBSTRING_INDEX(license_number, '-', -1) AS UNSIGNED)) FROM License WHERE license_number LIKE ?";
+
+    /**
+     * Reserves blockSize consecutive serials for the prefix and year.
+     * @return The first serial of the block; the block is [first, first + blockSize).
+     */
+    public int reserveBlock(String prefix, int year, int blockSize) throws SQLException {
+        // Two instances may race to create the first row for a new prefix/year. The loser either hits
+        // the primary key or, when both locked the missing row's gap, is chosen as deadlock victim
+        // (SQLState 40001); either way its transaction was rolled back and it retries.
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return tryReserveBlock(prefix, year, blockSize);
+            } catch (SQLException e) {
+                boolean lostRace = e instanceof SQLIntegrityConstraintViolationException
+                        || DEADLOCK_SQL_STATE.equals(e.getSQLState());
+                if (!lostRace || attempt >= 2) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private int tryReserveBlock(String prefix, int year, int blockSize) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        int first;
+
+        try {
+            connection = DbUtil.getConnection();
+            connection.setAutoCommit(false); // Start transaction
+
+            statement = connection.prepareStatement(SELECT_FOR_UPDATE);
+            statement.setString(1, prefix);
+            statement.setInt(2, year);
+            resultSet = statement.executeQuery();
+            boolean exists = resultSet.next();
+            first = exists ? resultSet.getInt(1) : firstFreeSerial(connection, prefix, year);
+            resultSet.close();
+            statement.close();
+
+            statement = connection.prepareStatement(exists ? UPDATE_NEXT : INSERT_SEQUENCE);
+            if (exists) {
+                statement.setInt(1, first + blockSize);
+                statement.setString(2, prefix);
+                statement.setInt(3, year);
+            } else {
+                statement.setString(1, prefix);
+                statement.setInt(2, year);
+                statement.setInt(3, first + blockSize);
+            }
+            statement.executeUpdate();
+
+            connection.commit(); // Commit transaction
+        } catch (SQLException e) {
+            if (connection != null) connection.rollback();
+            throw e;
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return first;
+    }
+
+    private int firstFreeSerial(Connection connection, String prefix, int year) throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            statement = connection.prepareStatement(SELECT_MAX_EXISTING);
+            statement.setString(1, prefix + "-" + year + "-%");
+            resultSet = statement.executeQuery();
+            long max = resultSet.next() ? resultSet.getLong(1) : 0;
+            return (int) Math.max(FIRST_SERIAL, max + 1);
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs EXPLAIN on every filtered DAO query and fails if MySQL would have to scan a whole table
+ * because no usable index exists (access type ALL with no possible_keys), or would have to sort
+ * the matching rows for an ORDER BY (Extra: Using filesort), which makes a LIMIT page cost as much
+ * as all the rows it is cut from.
+ * Whole-table reads such as getAllExporters() are full scans by design and are not listed here.
+ * When a DAO gains a new filtered query, add it to QUERIES.
+ * Usage: run main() against a migrated database (exit code 1 on failure),
+ * or start the app with -Ddb.checkQueryPlans=true.
+ */
+public class QueryPlanCheck {
+
+    // Query -> sample parameter values (only used to make the statement explainable)
+    private static final Map<String, Object[]> QUERIES = new LinkedHashMap<>();
+
+    static {
+        LocalDate today = LocalDate.now();
+        QUERIES.put(ExporterDAO.SELECT_BY_IEC, new Object[]{"0000000000"});
+        QUERIES.put(String.format(ExporterDAO.SELECT_BY_IEC_LIST, BatchSupport.placeholders(2)), new Object[]{"0000000000", "0000000001"});
+        QUERIES.put(ExporterDAO.SELECT_BY_ID, new Object[]{1});
+        QUERIES.put(LicenseDAO.SELECT_BY_NUMBER, new Object[]{"GEN-2025-10000"});
+        QUERIES.put(String.format(LicenseDAO.SELECT_BY_NUMBER_LIST, BatchSupport.placeholders(2)), new Object[]{"GEN-2025-10000", "GEN-2025-10001"});
+        QUERIES.put(LicenseDAO.SELECT_EXPIRING, new Object[]{30});
+        QUERIES.put(ShipmentDAO.SELECT_BY_LICENSE_ID, new Object[]{1});
+        QUERIES.put(ShipmentDAO.SELECT_FOR_STATUS_CHANGE, new Object[]{1});
+        QUERIES.put(ShipmentDAO.SELECT_LOG_PAGE_BY_ID, new Object[]{1, 0, 100});
+        QUERIES.put(ShipmentDAO.SELECT_LOG_FIRST_PAGE_BY_DATE, new Object[]{1, 100});
+        QUERIES.put(ShipmentDAO.SELECT_LOG_PAGE_BY_DATE, new Object[]{1, Date.valueOf(today), Date.valueOf(today), 0, 100});
+        QUERIES.put(ShipmentDAO.SELECT_LOG_PAGE_AFTER_UNDATED, new Object[]{1, 0, 100});
+        QUERIES.put(InvoiceDAO.SELECT_BY_SHIPMENT, new Object[]{1});
+        QUERIES.put(InvoiceDAO.UPDATE_STATUS, new Object[]{"PAID", Date.valueOf(today), 1});
+        QUERIES.put(InvoiceDAO.MARK_OVERDUE, new Object[]{Timestamp.valueOf(today.atStartOfDay()), 1000});
+        QUERIES.put(String.format(InvoiceDAO.LOCK_BY_SHIPMENT_LIST, BatchSupport.placeholders(2)), new Object[]{1, 2});
+    }
+
+    private QueryPlanCheck() { }
+
+    /**
+     * Explains every registered query.
+     * @return One message per unindexed full table scan or sort (empty if all are fine).
+     */
+    public static List<String> findViolations() throws SQLException {
+        List<String> violations = new ArrayList<>();
+        Connection connection = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            for (Map.Entry<String, Object[]> query : QUERIES.entrySet()) {
+                violations.addAll(explain(connection, query.getKey(), query.getValue()));
+            }
+        } finally {
+            DbUtil.closeConnection(connection);
+        }
+        return violations;
+    }
+
+    /**
+     * Throws if any registered query would do an unindexed full table scan or sort.
+     */
+    public static void verify() throws SQLException {
+        List<String> violations = findViolations();
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Queries without index support:\n" + String.join("\n", violations));
+        }
+    }
+
+    private static List<String> explain(Connection connection, String sql, Object[] params) throws SQLException {
+        List<String> violations = new ArrayList<>();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            statement = connection.prepareStatement("EXPLAIN " + sql);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                String type = resultSet.getString("type");
+                String extra = resultSet.getString("Extra");
+                if ("ALL".equals(type)) {
+                    // With possible_keys an index exists but the optimizer preferred a scan (and then a sort);
+                    // that is normal for tiny tables, so only a scan without any usable index is reported
+                    if (resultSet.getString("possible_keys") == null) {
+                        violations.add("FULL SCAN of " + resultSet.getString("table") + ": " + sql);
+                    }
+                } else if (extra != null && extra.contains("Using filesort")) {
+                    // The index finds the rows but not in ORDER BY order: every match is read and sorted
+                    violations.add("FILESORT of " + resultSet.getString("table") + " via " + resultSet.getString("key") + ": " + sql);
+                }
+            }
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        }
+        return violations;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        List<String> violations = findViolations();
+        DbUtil.shutdown();
+        if (!violations.isEmpty()) {
+            violations.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("All " + QUERIES.size() + " DAO queries are index-backed and need no sort.");
+    }
+}
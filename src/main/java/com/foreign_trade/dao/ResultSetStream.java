@@ -0,0 +1,102 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns a forward-only, server-streamed query into a lazy java.util.stream.Stream.
+ * Rows are read from the socket one at a time as the stream is consumed, so memory stays flat
+ * regardless of table size. The pooled connection is held until the stream is closed,
+ * so callers must use try-with-resources.
+ */
+class ResultSetStream {
+
+    /** Maps the current row of the ResultSet to a model object. */
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /** Binds query parameters onto the prepared statement. */
+    interface ParameterBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private ResultSetStream() { }
+
+    static <T> Stream<T> open(String sql, ParameterBinder binder, RowMapper<T> mapper) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J streams rows one by one instead of buffering the whole result
+            statement.setFetchSize(Integer.MIN_VALUE);
+            if (binder != null) {
+                binder.bind(statement);
+            }
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            close(resultSet, statement, connection);
+            throw e;
+        }
+
+        final Connection openConnection = connection;
+        final PreparedStatement openStatement = statement;
+        final ResultSet rows = resultSet;
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rows));
+                    return true;
+                } catch (SQLException e) {
+                    throw new DataAccessException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> close(rows, openStatement, openConnection));
+    }
+
+    /**
+     * Pushes every row to the callback and releases the connection afterwards.
+     * @return The number of rows delivered.
+     */
+    static <T> long forEach(String sql, ParameterBinder binder, RowMapper<T> mapper, Consumer<? super T> callback)
+            throws SQLException {
+        long[] count = {0};
+        try (Stream<T> stream = open(sql, binder, mapper)) {
+            stream.forEach(row -> {
+                callback.accept(row);
+                count[0]++;
+            });
+        } catch (DataAccessException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private static void close(ResultSet resultSet, Statement statement, Connection connection) {
+        try {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing streamed result: " + e.getMessage());
+        }
+        DbUtil.closeConnection(connection);
+    }
+}
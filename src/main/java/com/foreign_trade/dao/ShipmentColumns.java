@@ -0,0 +1,516 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.model.Shipment;
+import com.foreign_trade.model.Shipment.ShipmentStatus;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read-only, column-oriented snapshot of the Shipment table for analytics (totals by destination,
+ * product, month, status or insurance). Each attribute is one primitive array indexed by row:
+ * - quantity and totalCost as double[], license ID and export date (epoch day) as int[],
+ * - destination, product and status dictionary-encoded as int[] codes,
+ * - has_insurance as a BitSet.
+ * About 36 bytes per shipment, against several hundred for a Shipment object with its strings.
+ *
+ * Queries (count, sum, groupBy) split the rows into ranges on the common fork/join pool. Inside a range
+ * the filter is applied one column at a time over blocks of rows into a boolean mask, and the sums read
+ * the mask without branching, so the loops stay simple enough for the JIT to vectorize.
+ * The snapshot does not follow later inserts; load() a new one to refresh.
+ * Usage: ShipmentColumns.load().groupBy(Dimension.DESTINATION, new Filter().insured(true))
+ */
+public final class ShipmentColumns {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT license_id, product_name, destinationCountry, quantity, totalCost, exportDate, status, has_insurance FROM Shipment";
+
+    /** Export day of a shipment without an export date. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final String NO_VALUE = "(none)";
+    private static final int BLOCK = 2048;                 // Rows per filter pass (mask fits in L1)
+    private static final int LEAF_ROWS = 64 * BLOCK;       // Rows below which a range is not split further
+
+    /** What groupBy() groups on. */
+    public enum Dimension { DESTINATION, PRODUCT, STATUS, MONTH, INSURANCE }
+
+    /** What sum() adds up. */
+    public enum Measure { QUANTITY, TOTAL_COST }
+
+    /**
+     * Row filter; every condition set must hold. An empty filter selects every shipment.
+     * Values are matched exactly (as stored), dates inclusively.
+     */
+    public static final class Filter {
+        private Integer licenseId;
+        private String destination;
+        private String product;
+        private int statusMask = -1;          // Bit per ShipmentStatus ordinal
+        private Boolean insured;
+        private LocalDate exportedFrom;
+        private LocalDate exportedTo;
+
+        public Filter license(int licenseId) { this.licenseId = licenseId; return this; }
+        public Filter destination(String destination) { this.destination = destination; return this; }
+        public Filter product(String product) { this.product = product; return this; }
+        public Filter insured(boolean insured) { this.insured = insured; return this; }
+
+        public Filter status(ShipmentStatus... statuses) {
+            statusMask = 0;
+            for (ShipmentStatus status : statuses) {
+                statusMask |= 1 << status.ordinal();
+            }
+            return this;
+        }
+
+        /** Shipments with an export date between the two dates (both inclusive; null = open). */
+        public Filter exportedBetween(LocalDate from, LocalDate to) {
+            this.exportedFrom = from;
+            this.exportedTo = to;
+            return this;
+        }
+    }
+
+    /** Totals of one group. */
+    public static final class Group {
+        private final String key;
+        private final long count;
+        private final double quantity;
+        private final double totalCost;
+
+        Group(String key, long count, double quantity, double totalCost) {
+            this.key = key;
+            this.count = count;
+            this.quantity = quantity;
+            this.totalCost = totalCost;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public double getQuantity() { return quantity; }
+        public double getTotalCost() { return totalCost; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d shipments, quantity %.2f, cost %.2f", key, count, quantity, totalCost);
+        }
+    }
+
+    private final int rows;
+    private final int[] licenseIds;
+    private final int[] exportDays;
+    private final double[] quantities;
+    private final double[] totalCosts;
+    private final int[] destinationCodes;
+    private final int[] productCodes;
+    private final int[] statusCodes;
+    private final BitSet insured;
+    private final long[] insuredWords;     // insured.toLongArray(), for the filter loop
+    private final String[] destinations;   // Dictionaries: code -> value
+    private final String[] products;
+    private final int firstMonth;          // year * 12 + month of the earliest export date
+    private final int monthCount;
+    private final int firstDay;            // Earliest export date
+    private final int[] monthByDay;        // Export day - firstDay -> month - firstMonth
+
+    private ShipmentColumns(Builder builder) {
+        rows = builder.rows;
+        licenseIds = Arrays.copyOf(builder.licenseIds, rows);
+        exportDays = Arrays.copyOf(builder.exportDays, rows);
+        quantities = Arrays.copyOf(builder.quantities, rows);
+        totalCosts = Arrays.copyOf(builder.totalCosts, rows);
+        destinationCodes = Arrays.copyOf(builder.destinationCodes, rows);
+        productCodes = Arrays.copyOf(builder.productCodes, rows);
+        statusCodes = Arrays.copyOf(builder.statusCodes, rows);
+        insured = (BitSet) builder.insured.clone();
+        insuredWords = Arrays.copyOf(insured.toLongArray(), (rows + 63) >>> 6);
+        destinations = builder.destinations.toArray(new String[0]);
+        products = builder.products.toArray(new String[0]);
+
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int day : exportDays) {
+            if (day != NO_DATE) {
+                minDay = Math.min(minDay, day);
+                maxDay = Math.max(maxDay, day);
+            }
+        }
+        if (minDay <= maxDay) {
+            firstDay = minDay;
+            firstMonth = monthOf(minDay);
+            monthCount = monthOf(maxDay) - firstMonth + 1;
+            monthByDay = new int[maxDay - minDay + 1];
+            for (int day = minDay; day <= maxDay; day++) {
+                monthByDay[day - minDay] = monthOf(day) - firstMonth;
+            }
+        } else {
+            firstDay = 0;
+            firstMonth = 0;
+            monthCount = 0;
+            monthByDay = new int[0];
+        }
+    }
+
+    /**
+     * Reads the whole Shipment table (streamed, one row at a time) into a new snapshot.
+     */
+    public static ShipmentColumns load() throws SQLException {
+        Builder builder = new Builder();
+        // Rows are appended straight into the columns; no Shipment objects are created
+        ResultSetStream.forEach(SELECT_COLUMNS, null, builder::add, row -> { });
+        return new ShipmentColumns(builder);
+    }
+
+    /** A snapshot of shipments already in memory (e.g. for benchmarks). */
+    public static ShipmentColumns of(Iterable<Shipment> shipments) {
+        Builder builder = new Builder();
+        for (Shipment shipment : shipments) {
+            builder.add(shipment.getLicenseId(), shipment.getProductName(), shipment.getDestination(),
+                    shipment.getQuantity(), shipment.getTotalCost(), shipment.getExportDate(),
+                    shipment.getStatus(), shipment.isHasInsurance());
+        }
+        return new ShipmentColumns(builder);
+    }
+
+    // --- Queries ---
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    /** Approximate heap used by the columns and dictionaries. */
+    public long getMemoryBytes() {
+        long bytes = (long) rows * (4 + 4 + 8 + 8 + 4 + 4 + 4) + insured.size() / 8;
+        for (String value : destinations) bytes += 40 + (value != null ? value.length() : 0);
+        for (String value : products) bytes += 40 + (value != null ? value.length() : 0);
+        return bytes;
+    }
+
+    /** Number of shipments matching the filter. */
+    public long count(Filter filter) {
+        return scan(filter, null, null, 1).counts[0];
+    }
+
+    /** Sum of the measure over the shipments matching the filter. */
+    public double sum(Measure measure, Filter filter) {
+        Totals totals = scan(filter, null, null, 1);
+        return measure == Measure.QUANTITY ? totals.quantities[0] : totals.totalCosts[0];
+    }
+
+    /**
+     * Count, quantity and cost of the matching shipments per value of the dimension.
+     * @return One group per value with at least one shipment, ordered by key.
+     */
+    public List<Group> groupBy(Dimension dimension, Filter filter) {
+        String[] keys;
+        int[] codes;
+        switch (dimension) {
+            case DESTINATION:
+                keys = displayKeys(destinations);
+                codes = destinationCodes;
+                break;
+            case PRODUCT:
+                keys = displayKeys(products);
+                codes = productCodes;
+                break;
+            case STATUS:
+                keys = new String[ShipmentStatus.values().length];
+                for (ShipmentStatus status : ShipmentStatus.values()) {
+                    keys[status.ordinal()] = status.name();
+                }
+                codes = statusCodes;
+                break;
+            case MONTH:
+                keys = new String[monthCount + 1];
+                for (int i = 0; i < monthCount; i++) {
+                    int month = firstMonth + i;
+                    keys[i] = String.format("%04d-%02d", month / 12, month % 12 + 1);
+                }
+                keys[monthCount] = NO_VALUE;
+                codes = null;
+                break;
+            default: // INSURANCE
+                keys = new String[]{"uninsured", "insured"};
+                codes = null;
+                break;
+        }
+
+        Totals totals = scan(filter, dimension, codes, keys.length);
+        List<Group> groups = new ArrayList<>();
+        for (int g = 0; g < keys.length; g++) {
+            if (totals.counts[g] > 0) {
+                groups.add(new Group(keys[g], totals.counts[g], totals.quantities[g], totals.totalCosts[g]));
+            }
+        }
+        groups.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        return groups;
+    }
+
+    // --- Scanning ---
+
+    /** Per-group running totals of one row range. */
+    private static final class Totals {
+        final long[] counts;
+        final double[] quantities;
+        final double[] totalCosts;
+
+        Totals(int groups) {
+            counts = new long[groups];
+            quantities = new double[groups];
+            totalCosts = new double[groups];
+        }
+
+        Totals plus(Totals other) {
+            for (int g = 0; g < counts.length; g++) {
+                counts[g] += other.counts[g];
+                quantities[g] += other.quantities[g];
+                totalCosts[g] += other.totalCosts[g];
+            }
+            return this;
+        }
+    }
+
+    /** The filter translated to this snapshot's codes; matchesNothing if a value never occurs. */
+    private final class Predicate {
+        final int licenseId;
+        final boolean byLicense;
+        final int destinationCode;
+        final int productCode;
+        final int statusMask;
+        final int fromDay;
+        final int toDay;
+        final boolean byDate;
+        final Boolean insuredWanted;
+        final boolean matchesNothing;
+
+        Predicate(Filter filter) {
+            byLicense = filter.licenseId != null;
+            licenseId = byLicense ? filter.licenseId : 0;
+            destinationCode = filter.destination != null ? indexOf(destinations, filter.destination) : -1;
+            productCode = filter.product != null ? indexOf(products, filter.product) : -1;
+            statusMask = filter.statusMask;
+            byDate = filter.exportedFrom != null || filter.exportedTo != null;
+            fromDay = filter.exportedFrom != null ? (int) filter.exportedFrom.toEpochDay() : NO_DATE + 1;
+            toDay = filter.exportedTo != null ? (int) filter.exportedTo.toEpochDay() : Integer.MAX_VALUE;
+            insuredWanted = filter.insured;
+            matchesNothing = (filter.destination != null && destinationCode < 0)
+                    || (filter.product != null && productCode < 0)
+                    || statusMask == 0 || fromDay > toDay;
+        }
+
+        // One pass per condition over the block; each pass is a plain loop over one primitive array
+        void select(int from, int length, boolean[] keep) {
+            Arrays.fill(keep, 0, length, true);
+            if (byLicense) {
+                for (int i = 0; i < length; i++) keep[i] &= licenseIds[from + i] == licenseId;
+            }
+            if (destinationCode >= 0) {
+                for (int i = 0; i < length; i++) keep[i] &= destinationCodes[from + i] == destinationCode;
+            }
+            if (productCode >= 0) {
+                for (int i = 0; i < length; i++) keep[i] &= productCodes[from + i] == productCode;
+            }
+            if (statusMask != -1) {
+                for (int i = 0; i < length; i++) keep[i] &= (statusMask >>> statusCodes[from + i] & 1) != 0;
+            }
+            if (byDate) {
+                for (int i = 0; i < length; i++) {
+                    int day = exportDays[from + i];
+                    keep[i] &= day >= fromDay & day <= toDay;
+                }
+            }
+            if (insuredWanted != null) {
+                long wanted = insuredWanted ? 1 : 0;
+                for (int i = 0; i < length; i++) {
+                    int row = from + i;
+                    keep[i] &= (insuredWords[row >>> 6] >>> row & 1) == wanted;
+                }
+            }
+        }
+    }
+
+    /** Scans one range of rows; splits it in two while it is larger than LEAF_ROWS. */
+    private final class Scan extends RecursiveTask<Totals> {
+        private final Predicate predicate;
+        private final Dimension dimension;
+        private final int[] codes;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        Scan(Predicate predicate, Dimension dimension, int[] codes, int groups, int from, int to) {
+            this.predicate = predicate;
+            this.dimension = dimension;
+            this.codes = codes;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                Scan left = new Scan(predicate, dimension, codes, groups, from, middle);
+                Scan right = new Scan(predicate, dimension, codes, groups, middle, to);
+                left.fork();
+                Totals rightTotals = right.compute();
+                return left.join().plus(rightTotals);
+            }
+
+            Totals totals = new Totals(groups);
+            boolean[] keep = new boolean[BLOCK];
+            for (int start = from; start < to; start += BLOCK) {
+                int length = Math.min(BLOCK, to - start);
+                predicate.select(start, length, keep);
+                if (dimension == null) {
+                    addUngrouped(totals, start, length, keep);
+                } else {
+                    addGrouped(totals, start, length, keep);
+                }
+            }
+            return totals;
+        }
+
+        // Branch-free: a rejected row adds zero
+        private void addUngrouped(Totals totals, int start, int length, boolean[] keep) {
+            long count = 0;
+            double quantity = 0;
+            double totalCost = 0;
+            for (int i = 0; i < length; i++) {
+                count += keep[i] ? 1 : 0;
+                quantity += keep[i] ? quantities[start + i] : 0.0;
+                totalCost += keep[i] ? totalCosts[start + i] : 0.0;
+            }
+            totals.counts[0] += count;
+            totals.quantities[0] += quantity;
+            totals.totalCosts[0] += totalCost;
+        }
+
+        private void addGrouped(Totals totals, int start, int length, boolean[] keep) {
+            for (int i = 0; i < length; i++) {
+                if (keep[i]) {
+                    int row = start + i;
+                    int group = groupOf(row);
+                    totals.counts[group]++;
+                    totals.quantities[group] += quantities[row];
+                    totals.totalCosts[group] += totalCosts[row];
+                }
+            }
+        }
+
+        private int groupOf(int row) {
+            if (codes != null) {
+                return codes[row];
+            }
+            if (dimension == Dimension.INSURANCE) {
+                return insured.get(row) ? 1 : 0;
+            }
+            int day = exportDays[row];
+            return day == NO_DATE ? monthCount : monthByDay[day - firstDay];
+        }
+    }
+
+    private Totals scan(Filter filter, Dimension dimension, int[] codes, int groups) {
+        Predicate predicate = new Predicate(filter != null ? filter : new Filter());
+        if (predicate.matchesNothing || rows == 0) {
+            return new Totals(groups);
+        }
+        return ForkJoinPool.commonPool().invoke(new Scan(predicate, dimension, codes, groups, 0, rows));
+    }
+
+    private static int monthOf(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static int indexOf(String[] dictionary, String value) {
+        for (int i = 0; i < dictionary.length; i++) {
+            if (value.equals(dictionary[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] displayKeys(String[] dictionary) {
+        String[] keys = dictionary.clone();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) keys[i] = NO_VALUE;
+        }
+        return keys;
+    }
+
+    // --- Loading ---
+
+    /** Growable columns plus the dictionaries being built. */
+    private static final class Builder {
+        int rows;
+        int[] licenseIds = new int[1024];
+        int[] exportDays = new int[1024];
+        double[] quantities = new double[1024];
+        double[] totalCosts = new double[1024];
+        int[] destinationCodes = new int[1024];
+        int[] productCodes = new int[1024];
+        int[] statusCodes = new int[1024];
+        final BitSet insured = new BitSet();
+        final List<String> destinations = new ArrayList<>();
+        final List<String> products = new ArrayList<>();
+        private final Map<String, Integer> destinationIndex = new HashMap<>();
+        private final Map<String, Integer> productIndex = new HashMap<>();
+
+        Builder add(ResultSet resultSet) throws SQLException {
+            Date exportDate = resultSet.getDate("exportDate");
+            add(resultSet.getInt("license_id"), resultSet.getString("product_name"),
+                    resultSet.getString("destinationCountry"), resultSet.getDouble("quantity"),
+                    resultSet.getDouble("totalCost"), exportDate != null ? exportDate.toLocalDate() : null,
+                    ShipmentStatus.valueOf(resultSet.getString("status")), resultSet.getBoolean("has_insurance"));
+            return this;
+        }
+
+        void add(int licenseId, String product, String destination, double quantity, double totalCost,
+                 LocalDate exportDate, ShipmentStatus status, boolean hasInsurance) {
+            if (rows == licenseIds.length) {
+                int capacity = rows * 2;
+                licenseIds = Arrays.copyOf(licenseIds, capacity);
+                exportDays = Arrays.copyOf(exportDays, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                totalCosts = Arrays.copyOf(totalCosts, capacity);
+                destinationCodes = Arrays.copyOf(destinationCodes, capacity);
+                productCodes = Arrays.copyOf(productCodes, capacity);
+                statusCodes = Arrays.copyOf(statusCodes, capacity);
+            }
+            int row = rows++;
+            licenseIds[row] = licenseId;
+            exportDays[row] = exportDate != null ? (int) exportDate.toEpochDay() : NO_DATE;
+            quantities[row] = quantity;
+            totalCosts[row] = totalCost;
+            destinationCodes[row] = encode(destination, destinationIndex, destinations);
+            productCodes[row] = encode(product, productIndex, products);
+            statusCodes[row] = status.ordinal();
+            if (hasInsurance) {
+                insured.set(row);
+            }
+        }
+
+        private static int encode(String value, Map<String, Integer> index, List<String> dictionary) {
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                index.put(value, code);
+                dictionary.add(value);
+            }
+            return code;
+        }
+    }
+}
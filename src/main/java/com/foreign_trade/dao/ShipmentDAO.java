@@ -1,18 +1,48 @@
 package com.foreign_trade.dao;
 
+import com.foreign_trade.model.Invoice.PaymentStatus;
 import com.foreign_trade.model.Shipment;
 import com.foreign_trade.model.Shipment.ShipmentStatus;
+import com.foreign_trade.model.ShipmentLogEntry;
+import com.foreign_trade.model.ShipmentSummary;
 import com.foreign_trade.util.DbUtil;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class ShipmentDAO {
 
-    private static final String SELECT_BY_LICENSE_ID = "SELECT * FROM Shipment WHERE license_id = ?";
+    static final String SELECT_BY_LICENSE_ID = "SELECT * FROM Shipment WHERE license_id = ?";
     private static final String SELECT_ALL = "SELECT * FROM Shipment";
+    // Shipment log pages, with keyset pagination: each page starts strictly after the last row of the
+    // previous page. Pages by ID read idx_shipment_license_id (license_id, shipment_id), pages by date
+    // idx_shipment_license_date (license_id, exportDate, then the PK), so a page costs the same however
+    // many shipments the license has. Each row is joined to the shipment's latest invoice (if any); the
+    // subquery is resolved per row from idx_invoice_shipment, so a page stays one indexed query.
+    private static final String SELECT_LOG =
+            "SELECT s.*, i.amount AS invoice_amount, i.payment_status, i.payment_date FROM Shipment s " +
+                    "LEFT JOIN Invoice i ON i.invoice_id = " +
+                    "(SELECT MAX(latest.invoice_id) FROM Invoice latest WHERE latest.shipment_id = s.shipment_id) ";
+    static final String SELECT_LOG_PAGE_BY_ID =
+            SELECT_LOG + "WHERE s.license_id = ? AND s.shipment_id > ? ORDER BY s.shipment_id LIMIT ?";
+    static final String SELECT_LOG_FIRST_PAGE_BY_DATE =
+            SELECT_LOG + "WHERE s.license_id = ? ORDER BY s.exportDate, s.shipment_id LIMIT ?";
+    static final String SELECT_LOG_PAGE_BY_DATE =
+            SELECT_LOG + "WHERE s.license_id = ? AND (s.exportDate > ? OR (s.exportDate = ? AND s.shipment_id > ?)) " +
+                    "ORDER BY s.exportDate, s.shipment_id LIMIT ?";
+    // MySQL sorts NULL dates first, so after an undated row come later undated rows and then every dated row
+    static final String SELECT_LOG_PAGE_AFTER_UNDATED =
+            SELECT_LOG + "WHERE s.license_id = ? AND (s.exportDate IS NOT NULL OR s.shipment_id > ?) " +
+                    "ORDER BY s.exportDate, s.shipment_id LIMIT ?";
+    private static final String UPDATE_STATUS = "UPDATE Shipment SET status = ? WHERE shipment_id = ?";
+    static final String SELECT_FOR_STATUS_CHANGE = "SELECT license_id, status FROM Shipment WHERE shipment_id = ? FOR UPDATE";
+    private static final String INSERT_SHIPMENT = "INSERT INTO Shipment (license_id, product_name, origin, destinationCountry, quantity, totalCost, exportDate, status, has_insurance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     // NOTE: This method is used by the Controller as the final, simplified operation.
     public int insertAndValidateShipment(Shipment shipment) throws SQLException {
@@ -27,8 +57,7 @@ public class ShipmentDAO {
             connection.setAutoCommit(false); // Start transaction
 
             // 1. INSERT Shipment
-            String INSERT_SQL = "INSERT INTO Shipment (license_id, product_name, origin, destinationCountry, quantity, totalCost, exportDate, status, has_insurance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            insertStmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            insertStmt = connection.prepareStatement(INSERT_SHIPMENT, Statement.RETURN_GENERATED_KEYS);
 
             String initialStatus = shipment.isHasInsurance() ?
                     Shipment.ShipmentStatus.PENDING.name() :
@@ -56,25 +85,140 @@ public class ShipmentDAO {
             }
 
             // 2. IMMEDIATE VALIDATION (Update status to READY_TO_SHIP only if insured)
+            ShipmentStatus finalStatus = ShipmentStatus.valueOf(initialStatus);
             if (shipment.isHasInsurance()) {
-                String UPDATE_SQL = "UPDATE Shipment SET status = ? WHERE shipment_id = ?";
-                updateStmt = connection.prepareStatement(UPDATE_SQL);
+                updateStmt = connection.prepareStatement(UPDATE_STATUS);
                 updateStmt.setString(1, Shipment.ShipmentStatus.READY_TO_SHIP.name());
                 updateStmt.setInt(2, id);
                 updateStmt.executeUpdate();
+                finalStatus = ShipmentStatus.READY_TO_SHIP;
             }
 
-            connection.commit(); // Commit transaction
+            // 3. Per-license totals, in the same transaction
+            Map<Integer, ShipmentSummary> totals = ShipmentSummaryDAO.apply(connection,
+                    Collections.singletonList(ShipmentSummary.ofNewShipment(shipment, finalStatus)));
+
+            ShipmentSummaryDAO.commit(connection, totals); // Commit transaction
         } catch (SQLException e) {
             if (connection != null) connection.rollback();
             throw e;
         } finally {
-            if (connection != null) connection.setAutoCommit(true);
-            // Closing logic remains here
+            if (generatedKeys != null) generatedKeys.close();
+            if (insertStmt != null) insertStmt.close();
+            if (updateStmt != null) updateStmt.close();
+            DbUtil.closeConnection(connection); // Hand the connection back to the pool
         }
         return id;
     }
 
+    // --- C: Create (Batch Insert) ---
+    /**
+     * Inserts many shipments in one transaction using JDBC batching.
+     * Applies the same insurance rule as insertAndValidateShipment, but writes the final
+     * status (READY_TO_SHIP if insured, otherwise CANCELLED) directly instead of insert-then-update.
+     * Generated IDs are written back onto each Shipment.
+     * @return The generated IDs, in list order.
+     */
+    public int[] insertAll(List<Shipment> shipments) throws SQLException {
+        return insertAll(shipments, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as insertAll(shipments), flushing a batch every chunkSize rows.
+     */
+    public int[] insertAll(List<Shipment> shipments, int chunkSize) throws SQLException {
+        // Per-license totals are updated in the same transaction as the rows
+        BatchSupport.CommitHook updateTotals = new BatchSupport.CommitHook() {
+            private Map<Integer, ShipmentSummary> totals;
+
+            @Override
+            public void beforeCommit(Connection connection, int[] ids) throws SQLException {
+                List<ShipmentSummary> changes = new ArrayList<>(shipments.size());
+                for (Shipment shipment : shipments) {
+                    changes.add(ShipmentSummary.ofNewShipment(shipment, finalStatusOf(shipment)));
+                }
+                totals = ShipmentSummaryDAO.apply(connection, changes);
+            }
+
+            @Override
+            public void commit(Connection connection) throws SQLException {
+                ShipmentSummaryDAO.commit(connection, totals);
+            }
+        };
+
+        int[] ids = BatchSupport.insertAll(INSERT_SHIPMENT, shipments, chunkSize, (statement, shipment) -> {
+            ShipmentStatus finalStatus = finalStatusOf(shipment);
+
+            statement.setInt(1, shipment.getLicenseId());
+            statement.setString(2, shipment.getProductName());
+            statement.setString(3, shipment.getOrigin());
+            statement.setString(4, shipment.getDestination());
+            statement.setDouble(5, shipment.getQuantity());
+            statement.setDouble(6, shipment.getTotalCost());
+            statement.setDate(7, shipment.getExportDate() != null ? Date.valueOf(shipment.getExportDate()) : null);
+            statement.setString(8, finalStatus.name());
+            statement.setBoolean(9, shipment.isHasInsurance());
+        }, updateTotals);
+        for (int i = 0; i < ids.length; i++) {
+            shipments.get(i).setShipmentId(ids[i]);
+        }
+        return ids;
+    }
+
+    private static ShipmentStatus finalStatusOf(Shipment shipment) {
+        return shipment.isHasInsurance() ? ShipmentStatus.READY_TO_SHIP : ShipmentStatus.CANCELLED;
+    }
+
+    // --- U: Update (Status Change) ---
+    /**
+     * Moves a shipment to a new status, adjusting its license's totals in the same transaction.
+     * @return false if there is no such shipment.
+     */
+    public boolean updateShipmentStatus(int shipmentId, ShipmentStatus newStatus) throws SQLException {
+        Connection connection = null;
+        PreparedStatement selectStmt = null;
+        PreparedStatement updateStmt = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            connection.setAutoCommit(false); // Start transaction
+
+            // Lock the row so a concurrent change cannot move the same shipment between statuses twice
+            selectStmt = connection.prepareStatement(SELECT_FOR_STATUS_CHANGE);
+            selectStmt.setInt(1, shipmentId);
+            resultSet = selectStmt.executeQuery();
+            if (!resultSet.next()) {
+                connection.rollback();
+                return false;
+            }
+            int licenseId = resultSet.getInt("license_id");
+            ShipmentStatus oldStatus = ShipmentStatus.valueOf(resultSet.getString("status"));
+            if (oldStatus == newStatus) {
+                connection.rollback();
+                return true;
+            }
+
+            updateStmt = connection.prepareStatement(UPDATE_STATUS);
+            updateStmt.setString(1, newStatus.name());
+            updateStmt.setInt(2, shipmentId);
+            updateStmt.executeUpdate();
+
+            Map<Integer, ShipmentSummary> totals = ShipmentSummaryDAO.apply(connection,
+                    Collections.singletonList(ShipmentSummary.ofStatusChange(licenseId, oldStatus, newStatus)));
+            ShipmentSummaryDAO.commit(connection, totals); // Commit transaction
+            return true;
+        } catch (SQLException e) {
+            if (connection != null) connection.rollback();
+            throw e;
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (selectStmt != null) selectStmt.close();
+            if (updateStmt != null) updateStmt.close();
+            DbUtil.closeConnection(connection);
+        }
+    }
+
     // --- R: Read All Shipments (Universal Load for Initial Display/Testing) ---
     public List<Shipment> getAllShipments() throws SQLException {
         List<Shipment> shipments = new ArrayList<>();
@@ -88,30 +232,34 @@ public class ShipmentDAO {
             resultSet = statement.executeQuery(SELECT_ALL);
 
             while (resultSet.next()) {
-                Date sqlDate = resultSet.getDate("exportDate");
-                LocalDate exportDate = (sqlDate != null) ? sqlDate.toLocalDate() : null; // NULL-SAFE CHECK HERE
-
-                shipments.add(new Shipment(
-                        resultSet.getInt("shipment_id"),
-                        resultSet.getInt("license_id"),
-                        resultSet.getString("product_name"),
-                        resultSet.getString("origin"),
-                        resultSet.getString("destinationCountry"),
-                        resultSet.getDouble("quantity"),
-                        resultSet.getDouble("totalCost"),
-                        exportDate, // Use the NULL-SAFE variable
-                        Shipment.ShipmentStatus.valueOf(resultSet.getString("status")),
-                        resultSet.getBoolean("has_insurance")
-                ));
+                shipments.add(mapShipment(resultSet));
             }
         } finally {
-            DbUtil.closeConnection(connection);
-            if (statement != null) statement.close();
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return shipments;
     }
 
+    // --- R: Stream All Shipments (Reports/Exports; constant memory) ---
+    /**
+     * Streams every shipment straight from a server-side cursor instead of materialising a list.
+     * The stream holds a pooled connection until it is closed, so always use try-with-resources.
+     * SQL errors while reading rows surface as DataAccessException.
+     */
+    public Stream<Shipment> streamAllShipments() throws SQLException {
+        return ResultSetStream.open(SELECT_ALL, null, ShipmentDAO::mapShipment);
+    }
+
+    /**
+     * Callback variant of streamAllShipments(); the connection is released when this returns.
+     * @return The number of shipments delivered to the callback.
+     */
+    public long forEachShipment(Consumer<Shipment> callback) throws SQLException {
+        return ResultSetStream.forEach(SELECT_ALL, null, ShipmentDAO::mapShipment, callback);
+    }
+
     // --- R: Read Shipments by License ID (For Filtering) ---
     public List<Shipment> getShipmentsByLicenseId(int licenseId) throws SQLException {
         List<Shipment> shipments = new ArrayList<>();
@@ -126,27 +274,114 @@ public class ShipmentDAO {
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-                Date sqlDate = resultSet.getDate("exportDate");
-                LocalDate exportDate = (sqlDate != null) ? sqlDate.toLocalDate() : null; // NULL-SAFE CHECK HERE
-
-                shipments.add(new Shipment(
-                        resultSet.getInt("shipment_id"),
-                        resultSet.getInt("license_id"),
-                        resultSet.getString("product_name"),
-                        resultSet.getString("origin"),
-                        resultSet.getString("destinationCountry"),
-                        resultSet.getDouble("quantity"),
-                        resultSet.getDouble("totalCost"),
-                        exportDate, // Use the NULL-SAFE variable
-                        Shipment.ShipmentStatus.valueOf(resultSet.getString("status")),
-                        resultSet.getBoolean("has_insurance")
-                ));
+                shipments.add(mapShipment(resultSet));
             }
         } finally {
-            DbUtil.closeConnection(connection);
+            if (resultSet != null) resultSet.close();
             if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return shipments;
+    }
+
+    // --- R: Shipment Log Pages (Keyset Pages of Shipments with their Invoice) ---
+    /**
+     * Returns up to pageSize shipments of a license ordered by shipment_id, starting after afterShipmentId,
+     * each with the amount and payment state of its latest invoice, all from one query.
+     * Pass 0 for the first page. Cost is independent of how deep into the list the page is.
+     */
+    public List<ShipmentLogEntry> getShipmentLogPageById(int licenseId, int afterShipmentId, int pageSize) throws SQLException {
+        return queryList(SELECT_LOG_PAGE_BY_ID, statement -> {
+            statement.setInt(1, licenseId);
+            statement.setInt(2, afterShipmentId);
+            statement.setInt(3, pageSize);
+        }, ShipmentDAO::mapShipmentLogEntry);
+    }
+
+    /**
+     * Returns up to pageSize shipments of a license ordered by (exportDate, shipment_id), starting after
+     * the row identified by (afterExportDate, afterShipmentId), each with the amount and payment state of
+     * its latest invoice, all from one query.
+     * Pass afterShipmentId = 0 for the first page; afterExportDate may be null for an undated row.
+     */
+    public List<ShipmentLogEntry> getShipmentLogPageByExportDate(int licenseId, LocalDate afterExportDate,
+                                                                 int afterShipmentId, int pageSize) throws SQLException {
+        if (afterShipmentId <= 0) {
+            return queryList(SELECT_LOG_FIRST_PAGE_BY_DATE, statement -> {
+                statement.setInt(1, licenseId);
+                statement.setInt(2, pageSize);
+            }, ShipmentDAO::mapShipmentLogEntry);
+        }
+        if (afterExportDate == null) {
+            return queryList(SELECT_LOG_PAGE_AFTER_UNDATED, statement -> {
+                statement.setInt(1, licenseId);
+                statement.setInt(2, afterShipmentId);
+                statement.setInt(3, pageSize);
+            }, ShipmentDAO::mapShipmentLogEntry);
+        }
+        return queryList(SELECT_LOG_PAGE_BY_DATE, statement -> {
+            statement.setInt(1, licenseId);
+            statement.setDate(2, Date.valueOf(afterExportDate));
+            statement.setDate(3, Date.valueOf(afterExportDate));
+            statement.setInt(4, afterShipmentId);
+            statement.setInt(5, pageSize);
+        }, ShipmentDAO::mapShipmentLogEntry);
+    }
+
+    private static <T> List<T> queryList(String sql, ResultSetStream.ParameterBinder binder,
+                                         ResultSetStream.RowMapper<T> mapper) throws SQLException {
+        List<T> shipments = new ArrayList<>();
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.prepareStatement(sql);
+            binder.bind(statement);
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                shipments.add(mapper.map(resultSet));
+            }
+        } finally {
             if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
         }
         return shipments;
     }
-}
\ No newline at end of file
+
+    // --- Mapping ---
+    private static Shipment mapShipment(ResultSet resultSet) throws SQLException {
+        Date sqlDate = resultSet.getDate("exportDate");
+        LocalDate exportDate = (sqlDate != null) ? sqlDate.toLocalDate() : null; // NULL-SAFE CHECK HERE
+
+        return new Shipment(
+                resultSet.getInt("shipment_id"),
+                resultSet.getInt("license_id"),
+                resultSet.getString("product_name"),
+                resultSet.getString("origin"),
+                resultSet.getString("destinationCountry"),
+                resultSet.getDouble("quantity"),
+                resultSet.getDouble("totalCost"),
+                exportDate,
+                Shipment.ShipmentStatus.valueOf(resultSet.getString("status")),
+                resultSet.getBoolean("has_insurance")
+        );
+    }
+
+    private static ShipmentLogEntry mapShipmentLogEntry(ResultSet resultSet) throws SQLException {
+        double amount = resultSet.getDouble("invoice_amount");
+        Double invoiceAmount = resultSet.wasNull() ? null : amount; // NULL when the shipment has no invoice
+        String paymentStatus = resultSet.getString("payment_status");
+        Date paymentDate = resultSet.getDate("payment_date");
+
+        return new ShipmentLogEntry(
+                mapShipment(resultSet),
+                invoiceAmount,
+                paymentStatus != null ? PaymentStatus.valueOf(paymentStatus) : null,
+                paymentDate != null ? paymentDate.toLocalDate() : null
+        );
+    }
+}
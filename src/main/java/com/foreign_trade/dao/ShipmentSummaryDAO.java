@@ -0,0 +1,223 @@
+package com.foreign_trade.dao;
+
+import com.foreign_trade.model.Shipment.ShipmentStatus;
+import com.foreign_trade.model.ShipmentSummary;
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-license shipment totals (license_shipment_summary, schema V4) and an in-memory mirror of them,
+ * so dashboards read a license's totals in O(1) instead of summing its shipments.
+ * ShipmentDAO adds each change to the table inside the transaction that writes the shipment, then
+ * hands the commit to commit(...), which updates the mirror once the commit succeeded.
+ * The mirror is loaded from the table on first use; reload() re-reads it (e.g. after another instance
+ * wrote shipments) and rebuild() recomputes the table from Shipment when the totals have drifted.
+ * Usage: run main() to rebuild from the command line.
+ */
+public class ShipmentSummaryDAO {
+
+    private static final String COLUMNS;
+    private static final String UPSERT;
+    private static final String REBUILD_INSERT;
+    private static final String SELECT_ALL = "SELECT * FROM license_shipment_summary";
+    private static final String DELETE_ALL = "DELETE FROM license_shipment_summary";
+
+    static {
+        // One "<status>_count" column per ShipmentStatus, in enum order
+        StringBuilder columns = new StringBuilder("license_id, shipment_count, total_quantity, total_cost");
+        StringBuilder updates = new StringBuilder("shipment_count = shipment_count + VALUES(shipment_count), "
+                + "total_quantity = total_quantity + VALUES(total_quantity), total_cost = total_cost + VALUES(total_cost)");
+        StringBuilder sums = new StringBuilder("license_id, COUNT(*), SUM(quantity), SUM(totalCost)");
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            String column = statusColumn(status);
+            columns.append(", ").append(column);
+            updates.append(", ").append(column).append(" = ").append(column).append(" + VALUES(").append(column).append(")");
+            sums.append(", SUM(status = '").append(status.name()).append("')");
+        }
+        COLUMNS = columns.toString();
+        UPSERT = "INSERT INTO license_shipment_summary (" + COLUMNS + ") VALUES ("
+                + BatchSupport.placeholders(4 + ShipmentStatus.values().length) + ") ON DUPLICATE KEY UPDATE " + updates;
+        REBUILD_INSERT = "INSERT INTO license_shipment_summary (" + COLUMNS + ") SELECT " + sums
+                + " FROM Shipment GROUP BY license_id";
+    }
+
+    // Writers hold the read lock from commit to mirror update (they can run together) and then count the
+    // commit. reload() reads the table without any lock and installs it under the write lock only if no
+    // commit was counted meanwhile (else it reads again), so it never waits on the database while
+    // writers, which may hold summary row locks, wait on it.
+    private static final ReentrantReadWriteLock MIRROR_LOCK = new ReentrantReadWriteLock();
+    private static final AtomicLong COMMITS = new AtomicLong();
+    private static final int RELOAD_ATTEMPTS = 5;
+    private static volatile Map<Integer, ShipmentSummary> mirror;   // null until first loaded
+
+    // --- Writes (called by ShipmentDAO inside its transaction) ---
+
+    /**
+     * Adds the changes to the summary table on the caller's connection (inside its transaction).
+     * Changes for the same license are merged first, so each license costs one row update.
+     */
+    static Map<Integer, ShipmentSummary> apply(Connection connection, Collection<ShipmentSummary> changes) throws SQLException {
+        Map<Integer, ShipmentSummary> merged = new HashMap<>();
+        for (ShipmentSummary change : changes) {
+            merged.merge(change.getLicenseId(), change, ShipmentSummary::plus);
+        }
+
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(UPSERT);
+            for (ShipmentSummary change : merged.values()) {
+                statement.setInt(1, change.getLicenseId());
+                statement.setInt(2, change.getShipmentCount());
+                statement.setDouble(3, change.getTotalQuantity());
+                statement.setDouble(4, change.getTotalCost());
+                int column = 5;
+                for (ShipmentStatus status : ShipmentStatus.values()) {
+                    statement.setInt(column++, change.getCount(status));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } finally {
+            if (statement != null) statement.close();
+        }
+        return merged;
+    }
+
+    /**
+     * Commits the caller's transaction and, if that succeeds, applies the changes (as returned by
+     * apply(...)) to the in-memory mirror.
+     */
+    static void commit(Connection connection, Map<Integer, ShipmentSummary> changes) throws SQLException {
+        MIRROR_LOCK.readLock().lock();
+        try {
+            connection.commit();
+            Map<Integer, ShipmentSummary> current = mirror;
+            if (current != null) {
+                for (ShipmentSummary change : changes.values()) {
+                    current.merge(change.getLicenseId(), ShipmentSummary.empty(change.getLicenseId()).plus(change),
+                            ShipmentSummary::plus);
+                }
+            }
+            COMMITS.incrementAndGet();
+        } finally {
+            MIRROR_LOCK.readLock().unlock();
+        }
+    }
+
+    // --- Reads ---
+
+    /**
+     * The shipment totals of a license, from memory (the table is read once, on first use).
+     * @return The totals; all zero for a license without shipments.
+     */
+    public ShipmentSummary getSummary(int licenseId) throws SQLException {
+        Map<Integer, ShipmentSummary> current;
+        while ((current = mirror) == null) {
+            reload(); // Loops only if a rebuild() dropped the mirror again meanwhile
+        }
+        ShipmentSummary summary = current.get(licenseId);
+        return summary != null ? summary : ShipmentSummary.empty(licenseId);
+    }
+
+    /**
+     * Re-reads the whole summary table into memory.
+     * @throws SQLTransientException If shipments kept being committed during every read (the mirror is left as it was).
+     */
+    public void reload() throws SQLException {
+        for (int attempt = 0; attempt < RELOAD_ATTEMPTS; attempt++) {
+            // A commit counted before this point is in the table we read; one counted later may not be
+            long commits = COMMITS.get();
+            Map<Integer, ShipmentSummary> fresh = readAll();
+
+            MIRROR_LOCK.writeLock().lock();
+            try {
+                if (COMMITS.get() == commits) {
+                    mirror = fresh;
+                    return;
+                }
+            } finally {
+                MIRROR_LOCK.writeLock().unlock();
+            }
+        }
+        throw new SQLTransientException("Shipment totals changed during each of " + RELOAD_ATTEMPTS + " reloads.");
+    }
+
+    /**
+     * Recomputes the summary table from the Shipment table in one transaction and reloads the mirror.
+     * Shipments written meanwhile may be counted twice or not at all, so run it while the desk is idle.
+     * If the mirror cannot be reloaded (see reload()), it is dropped and reloaded on next use.
+     * @return The number of licenses with shipments.
+     */
+    public int rebuild() throws SQLException {
+        Connection connection = null;
+        Statement statement = null;
+        int licenses;
+
+        try {
+            connection = DbUtil.getConnection();
+            connection.setAutoCommit(false); // Start transaction
+            statement = connection.createStatement();
+            statement.executeUpdate(DELETE_ALL);
+            licenses = statement.executeUpdate(REBUILD_INSERT);
+            connection.commit();
+        } catch (SQLException e) {
+            if (connection != null) connection.rollback();
+            throw e;
+        } finally {
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+
+        try {
+            reload();
+        } catch (SQLTransientException e) {
+            MIRROR_LOCK.writeLock().lock();
+            try {
+                mirror = null; // Holds the totals from before the rebuild
+            } finally {
+                MIRROR_LOCK.writeLock().unlock();
+            }
+        }
+        return licenses;
+    }
+
+    private static Map<Integer, ShipmentSummary> readAll() throws SQLException {
+        Map<Integer, ShipmentSummary> summaries = new ConcurrentHashMap<>();
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(SELECT_ALL);
+
+            while (resultSet.next()) {
+                int[] counts = new int[ShipmentStatus.values().length];
+                for (ShipmentStatus status : ShipmentStatus.values()) {
+                    counts[status.ordinal()] = resultSet.getInt(statusColumn(status));
+                }
+                ShipmentSummary summary = new ShipmentSummary(resultSet.getInt("license_id"),
+                        resultSet.getInt("shipment_count"), resultSet.getDouble("total_quantity"),
+                        resultSet.getDouble("total_cost"), counts);
+                summaries.put(summary.getLicenseId(), summary);
+            }
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            DbUtil.closeConnection(connection);
+        }
+        return summaries;
+    }
+
+    private static String statusColumn(ShipmentStatus status) {
+        return status.name().toLowerCase() + "_count";
+    }
+}
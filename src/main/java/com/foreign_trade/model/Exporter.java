@@ -23,6 +23,11 @@ public class Exporter {
         this(-1, firmName, iecNumber, contactPerson, country);
     }
 
+    // Copy Constructor (DAO caches hand out copies, never the cached instance)
+    public Exporter(Exporter other) {
+        this(other.exporterId, other.firmName, other.iecNumber, other.contactPerson, other.country);
+    }
+
     // --- Getters and Setters ---
     public int getExporterId() { return exporterId; }
     public void setExporterId(int exporterId) { this.exporterId = exporterId; }
@@ -28,6 +28,11 @@ public class License {
         this(-1, exporterId, licenseNumber, issueDate, expiryDate, signatureUrl);
     }
 
+    // --- Copy Constructor (DAO caches hand out copies, never the cached instance) ---
+    public License(License other) {
+        this(other.licenseId, other.exporterId, other.licenseNumber, other.issueDate, other.expiryDate, other.signatureUrl);
+    }
+
     // --- Business Logic Helper ---
     /**
      * Checks if the current date is before the expiry date.
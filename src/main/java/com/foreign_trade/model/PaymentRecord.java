@@ -0,0 +1,37 @@
+package com.foreign_trade.model;
+
+import com.foreign_trade.model.Invoice.PaymentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * One line of a bank statement: the invoice of a shipment and the payment status to give it.
+ * InvoiceDAO.reconcilePayments() writes the outcome back onto the record.
+ */
+public class PaymentRecord {
+
+    public enum Outcome {
+        UPDATED,        // The shipment's unpaid invoice(s) now have the new status
+        NOT_FOUND,      // No invoice for the shipment
+        ALREADY_PAID    // Every invoice of the shipment was already PAID; nothing changed
+    }
+
+    private final int shipmentId;
+    private final PaymentStatus status;
+    private final LocalDate paymentDate;
+    private Outcome outcome;     // null until reconciled
+
+    public PaymentRecord(int shipmentId, PaymentStatus status, LocalDate paymentDate) {
+        this.shipmentId = shipmentId;
+        this.status = status;
+        this.paymentDate = paymentDate;
+    }
+
+    // --- Getters and Setters ---
+    public int getShipmentId() { return shipmentId; }
+    public PaymentStatus getStatus() { return status; }
+    public LocalDate getPaymentDate() { return paymentDate; }
+
+    public Outcome getOutcome() { return outcome; }
+    public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+}
@@ -0,0 +1,33 @@
+package com.foreign_trade.model;
+
+import com.foreign_trade.model.Invoice.PaymentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * A shipment together with the payment state of its invoice, as shown in the Shipment Log View.
+ * Read with the shipment in the same query (ShipmentDAO.getShipmentLogPage...), so the log needs no
+ * per-row invoice lookups. The invoice fields are null when the shipment has no invoice yet.
+ */
+public class ShipmentLogEntry extends Shipment {
+
+    private final Double invoiceAmount;
+    private final PaymentStatus paymentStatus;
+    private final LocalDate paymentDate;
+
+    public ShipmentLogEntry(Shipment shipment, Double invoiceAmount, PaymentStatus paymentStatus, LocalDate paymentDate) {
+        super(shipment.getShipmentId(), shipment.getLicenseId(), shipment.getProductName(), shipment.getOrigin(),
+                shipment.getDestination(), shipment.getQuantity(), shipment.getTotalCost(), shipment.getExportDate(),
+                shipment.getStatus(), shipment.isHasInsurance());
+        this.invoiceAmount = invoiceAmount;
+        this.paymentStatus = paymentStatus;
+        this.paymentDate = paymentDate;
+    }
+
+    // --- Getters ---
+    public Double getInvoiceAmount() { return invoiceAmount; }
+    public PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public LocalDate getPaymentDate() { return paymentDate; }
+
+    public boolean hasInvoice() { return paymentStatus != null; }
+}
@@ -0,0 +1,78 @@
+package com.foreign_trade.model;
+
+import com.foreign_trade.model.Shipment.ShipmentStatus;
+
+/**
+ * Running shipment totals of one license: number of shipments, total quantity and cost, and how many
+ * shipments are in each status. Immutable; the same shape also describes a change to the totals
+ * (counts may then be negative).
+ */
+public class ShipmentSummary {
+
+    private final int licenseId;
+    private final int shipmentCount;
+    private final double totalQuantity;
+    private final double totalCost;
+    private final int[] countsByStatus; // Indexed by ShipmentStatus.ordinal()
+
+    public ShipmentSummary(int licenseId, int shipmentCount, double totalQuantity, double totalCost, int[] countsByStatus) {
+        if (countsByStatus.length != ShipmentStatus.values().length) {
+            throw new IllegalArgumentException("Need one count per shipment status.");
+        }
+        this.licenseId = licenseId;
+        this.shipmentCount = shipmentCount;
+        this.totalQuantity = totalQuantity;
+        this.totalCost = totalCost;
+        this.countsByStatus = countsByStatus.clone();
+    }
+
+    /** The totals of a license without shipments. */
+    public static ShipmentSummary empty(int licenseId) {
+        return new ShipmentSummary(licenseId, 0, 0, 0, new int[ShipmentStatus.values().length]);
+    }
+
+    /** The change a new shipment makes to its license's totals. */
+    public static ShipmentSummary ofNewShipment(Shipment shipment, ShipmentStatus status) {
+        int[] counts = new int[ShipmentStatus.values().length];
+        counts[status.ordinal()] = 1;
+        return new ShipmentSummary(shipment.getLicenseId(), 1, shipment.getQuantity(), shipment.getTotalCost(), counts);
+    }
+
+    /** The change a status transition makes to its license's totals. */
+    public static ShipmentSummary ofStatusChange(int licenseId, ShipmentStatus from, ShipmentStatus to) {
+        int[] counts = new int[ShipmentStatus.values().length];
+        counts[from.ordinal()]--;
+        counts[to.ordinal()]++;
+        return new ShipmentSummary(licenseId, 0, 0, 0, counts);
+    }
+
+    /** These totals with a change applied. */
+    public ShipmentSummary plus(ShipmentSummary change) {
+        int[] counts = countsByStatus.clone();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += change.countsByStatus[i];
+        }
+        return new ShipmentSummary(licenseId, shipmentCount + change.shipmentCount,
+                totalQuantity + change.totalQuantity, totalCost + change.totalCost, counts);
+    }
+
+    // --- Getters ---
+    public int getLicenseId() { return licenseId; }
+    public int getShipmentCount() { return shipmentCount; }
+    public double getTotalQuantity() { return totalQuantity; }
+    public double getTotalCost() { return totalCost; }
+
+    public int getCount(ShipmentStatus status) {
+        return countsByStatus[status.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder statuses = new StringBuilder();
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            statuses.append(", ").append(status).append('=').append(countsByStatus[status.ordinal()]);
+        }
+        return String.format("ShipmentSummary[license=%d, shipments=%d, quantity=%.2f, cost=%.2f%s]",
+                licenseId, shipmentCount, totalQuantity, totalCost, statuses);
+    }
+}
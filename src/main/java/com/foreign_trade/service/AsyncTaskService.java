@@ -0,0 +1,150 @@
+package com.foreign_trade.service;
+
+import javafx.application.Platform;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs DAO/service calls off the JavaFX Application Thread.
+ * Work executes on virtual threads (one per task, so a slow query never starves the others),
+ * and run(...) delivers the result back on the FX thread through Platform.runLater.
+ * Each controller owns one instance and calls cancelAll() when the user navigates away:
+ * the callbacks of outstanding reads are dropped. The reads themselves are not interrupted:
+ * interrupting a virtual thread blocked in a Connector/J socket read closes the socket, so every
+ * slow query left behind would cost a pooled connection. They finish in the background and hand
+ * their connection back as usual.
+ * Writes go through runToCompletion(...) instead, which always reports the outcome, so the user
+ * learns whether it committed even after leaving the view.
+ */
+public class AsyncTaskService {
+
+    /** A unit of background work; may throw any checked exception (SQLException, IOException, ...). */
+    @FunctionalInterface
+    public interface BackgroundTask<T> {
+        T call() throws Exception;
+    }
+
+    private static final ExecutorService VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    // Bumped by cancelAll(); callbacks from an older generation are discarded
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Runs the task on a virtual thread. The returned future completes on that background thread;
+     * cancelling it completes it at once, but the task still runs to its end (it is not interrupted).
+     */
+    public <T> CompletableFuture<T> submit(BackgroundTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pending.add(future);
+        future.whenComplete((result, error) -> pending.remove(future));
+        start(task, future);
+        return future;
+    }
+
+    /**
+     * Runs the task in the background and hands the result (or the failure) to the callbacks
+     * on the FX Application Thread. Callbacks are skipped if the task was cancelled.
+     */
+    public <T> CompletableFuture<T> run(BackgroundTask<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        int startedIn = generation.get();
+        CompletableFuture<T> future = submit(task);
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            Platform.runLater(() -> {
+                if (startedIn != generation.get()) {
+                    return; // The view was left (or reset) while this task was finishing
+                }
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    onError.accept(unwrap(error));
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Runs a write (insert, issuance, ...) in the background and hands its outcome to the callbacks on
+     * the FX Application Thread. Unlike run(...), cancelAll() neither interrupts it nor drops its
+     * callbacks, so the user always learns whether it committed, even after leaving the view.
+     * Cancelling the returned future does not stop the work either.
+     */
+    public <T> CompletableFuture<T> runToCompletion(BackgroundTask<T> task, Consumer<T> onSuccess,
+                                                    Consumer<Exception> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        start(task, future);
+
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    private static <T> void start(BackgroundTask<T> task, CompletableFuture<T> future) {
+        VIRTUAL_THREADS.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Cancels every read started through run(...) or submit(...): their callbacks are dropped and
+     * their futures complete as cancelled, without interrupting the work. Call when leaving the view.
+     */
+    public void cancelAll() {
+        generation.incrementAndGet();
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(false);
+        }
+    }
+
+    /** Number of tasks that have not finished yet. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops accepting work and gives running tasks (writes in particular) a few seconds to finish
+     * before interrupting them. Called when the application exits.
+     */
+    public static void shutdown() {
+        VIRTUAL_THREADS.shutdown();
+        try {
+            if (!VIRTUAL_THREADS.awaitTermination(5, TimeUnit.SECONDS)) {
+                VIRTUAL_THREADS.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            VIRTUAL_THREADS.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+}
@@ -1,64 +1,98 @@
 package com.foreign_trade.service;
 
+import com.foreign_trade.dao.FAQDAO;
 import com.foreign_trade.dao.LicenseDAO;
 import com.foreign_trade.model.License;
-import com.foreign_trade.util.DbUtil;
+import com.foreign_trade.util.CacheStats;
+import com.foreign_trade.util.LruCache;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 public class ChatbotService {
 
-    private static final String SELECT_FAQ_BY_KEYWORD =
-            "SELECT answer FROM FAQ WHERE question LIKE ?";
-
     private final LicenseDAO licenseDAO = new LicenseDAO();
+    private final IntentRouter intentRouter = IntentRouter.getDefault();
+    private final LicenseValidityService validityService = new LicenseValidityService();
+
+    // Shared by every ChatbotService instance; loaded on the first question
+    private static final FaqIndex FAQ_INDEX = new FaqIndex(new FAQDAO(), Long.getLong("chatbot.faq.refreshSeconds", 300L));
+
+    // Answer caches, also shared. FAQ answers only change with the FAQ table (their keys carry the index
+    // generation); validity and reminder answers depend on today's date and on License rows, so they expire
+    // quickly and are dropped whenever licenses are inserted. Failed lookups are never cached.
+    private static final LruCache<String, String> FAQ_ANSWER_CACHE = new LruCache<>("chatbotFaqAnswers",
+            Integer.getInteger("cache.chatbot.faq.maxSize", 1000), Long.getLong("cache.chatbot.faq.ttlMs", 600_000L));
+    private static final LruCache<String, String> VALIDITY_ANSWER_CACHE = new LruCache<>("chatbotValidityAnswers",
+            Integer.getInteger("cache.chatbot.validity.maxSize", 1000), Long.getLong("cache.chatbot.validity.ttlMs", 30_000L));
+    private static final LruCache<Integer, List<String>> REMINDER_CACHE = new LruCache<>("chatbotReminders",
+            Integer.getInteger("cache.chatbot.reminders.maxSize", 16), Long.getLong("cache.chatbot.reminders.ttlMs", 30_000L));
+
+    static {
+        FAQDAO.addChangeListener(FAQ_ANSWER_CACHE::invalidateAll);
+        LicenseDAO.addInsertListener(licenses -> {
+            VALIDITY_ANSWER_CACHE.invalidateAll();
+            REMINDER_CACHE.invalidateAll();
+        });
+    }
 
     /**
-     * Finds the best static answer based on user input using keyword matching.
+     * Answers one chat message: routes it to an intent and runs the matching handler.
+     * Used by ChatbotController and usable headlessly (batch or API callers need no JavaFX).
+     * @param userInput The raw message.
+     * @return The bot's reply.
+     */
+    public String reply(String userInput) {
+        IntentRouter.Route route = intentRouter.route(userInput);
+
+        switch (route.getIntent()) {
+            case BULK_VALIDITY:
+                if (route.getLicenseNumbers().isEmpty()) {
+                    return "Please list the license numbers you want to check.";
+                }
+                return checkLicensesValidity(route.getLicenseNumbers());
+            case LICENSE_VALIDITY:
+                if (route.getLicenseNumber().isEmpty()) {
+                    return "Please provide the exact license number you want to check.";
+                }
+                if (route.getLicenseNumbers().size() > 1) {
+                    return checkLicensesValidity(route.getLicenseNumbers());
+                }
+                return checkLicenseValidity(route.getLicenseNumber());
+            case RENEWAL_REMINDERS:
+                List<String> reminders = generateRenewalReminders(30);
+                if (reminders.isEmpty()) {
+                    return "No licenses are currently expiring within the next 30 days.";
+                }
+                return "FOUND EXPIRING LICENSES:\n" + String.join("\n", reminders);
+            default:
+                return getStaticFAQAnswer(userInput);
+        }
+    }
+
+    /**
+     * Finds the best static answer for the user input from the in-memory FAQ index (BM25 ranking
+     * over stemmed question and answer terms), without a database round trip.
      * @param userInput The question entered by the user.
      * @return The answer from the FAQ table, or a generic response if none is found.
      */
     public String getStaticFAQAnswer(String userInput) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        // Sanitize and prepare input for a LIKE search (case-insensitive and partial match)
-        String keywordSearch = "%" + userInput.toLowerCase() + "%";
-
         try {
-            connection = DbUtil.getConnection();
-            // Note: This simple implementation matches the keyword against the whole question column
-            statement = connection.prepareStatement(SELECT_FAQ_BY_KEYWORD);
-            statement.setString(1, keywordSearch);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                // Return the first matching answer
-                return resultSet.getString("answer");
-            }
-
+            // BM25 only looks at the distinct analyzed terms, so messages with the same terms share an entry
+            String key = FAQ_INDEX.getGeneration() + ":" + String.join(" ", new TreeSet<>(TextAnalyzer.terms(userInput)));
+            return FAQ_ANSWER_CACHE.get(key, k -> {
+                FaqIndex.Match match = FAQ_INDEX.search(userInput);
+                return match != null ? match.getFaq().getAnswer()
+                        : "I'm sorry, I couldn't find an answer to that specific question. Please try rephrasing.";
+            });
         } catch (SQLException e) {
             // Log the error but return a user-friendly message
             System.err.println("Chatbot DB error: " + e.getMessage());
-        } finally {
-            // Note: In a real app, DAOs should close their own resources. This is kept here for simplicity.
-            DbUtil.closeConnection(connection);
-            try {
-                if (statement != null) statement.close();
-                if (resultSet != null) resultSet.close();
-            } catch (SQLException e) {
-                // ignore
-            }
+            return "I'm sorry, I couldn't find an answer to that specific question. Please try rephrasing.";
         }
-
-        return "I'm sorry, I couldn't find an answer to that specific question. Please try rephrasing.";
     }
 
     /**
@@ -68,21 +102,47 @@ public class ChatbotService {
      */
     public String checkLicenseValidity(String licenseNumber) {
         try {
-            License license = licenseDAO.getLicenseByNumber(licenseNumber);
-
-            if (license == null) {
-                return "Error: License number " + licenseNumber + " was not found in our records.";
-            }
+            return VALIDITY_ANSWER_CACHE.get(licenseNumber.toUpperCase(), this::describeValidity);
+        } catch (SQLException e) {
+            return "A database error occurred while checking your license status.";
+        }
+    }
 
-            if (license.isValid()) {
-                return "Yes, your license (" + licenseNumber + ") is currently **VALID**." +
-                        " It expires on: " + license.getExpiryDate();
-            } else {
-                return "No, your license (" + licenseNumber + ") **EXPIRED** on: " + license.getExpiryDate() +
-                        ". Please apply for a renewal.";
+    /**
+     * Checks several licenses in one lookup (see LicenseValidityService), as of today.
+     * @return A summary line followed by one line per license.
+     */
+    public String checkLicensesValidity(List<String> licenseNumbers) {
+        LocalDate today = LocalDate.now();
+        try {
+            List<LicenseValidityService.Result> results = validityService.checkAll(licenseNumbers, today);
+            StringBuilder reply = new StringBuilder(LicenseValidityService.summarize(results, today));
+            for (LicenseValidityService.Result result : results) {
+                reply.append("\n").append(result.getLicenseNumber()).append(": ").append(result.getStatus());
+                if (result.getLicense() != null) {
+                    reply.append(result.getStatus() == LicenseValidityService.Status.VALID ? " (expires " : " (expired ")
+                            .append(result.getLicense().getExpiryDate()).append(")");
+                }
             }
+            return reply.toString();
         } catch (SQLException e) {
-            return "A database error occurred while checking your license status.";
+            return "A database error occurred while checking your license statuses.";
+        }
+    }
+
+    private String describeValidity(String licenseNumber) throws SQLException {
+        License license = licenseDAO.getLicenseByNumber(licenseNumber);
+
+        if (license == null) {
+            return "Error: License number " + licenseNumber + " was not found in our records.";
+        }
+
+        if (license.isValid()) {
+            return "Yes, your license (" + licenseNumber + ") is currently **VALID**." +
+                    " It expires on: " + license.getExpiryDate();
+        } else {
+            return "No, your license (" + licenseNumber + ") **EXPIRED** on: " + license.getExpiryDate() +
+                    ". Please apply for a renewal.";
         }
     }
 
@@ -93,26 +153,34 @@ public class ChatbotService {
      */
     public List<String> generateRenewalReminders(int days) {
         try {
-            LocalDate now = LocalDate.now();
-            List<License> expiringLicenses = licenseDAO.getLicensesExpiringInDays(days);
-
-            return expiringLicenses.stream()
-                    .map(license -> {
-                        long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(now, license.getExpiryDate());
-                        return String.format(
-                                "REMINDER: License %s (Exporter ID: %d) will expire in %d days (%s). Please renew immediately.",
-                                license.getLicenseNumber(),
-                                license.getExporterId(),
-                                remainingDays,
-                                license.getExpiryDate()
-                        );
-                    })
-                    .collect(Collectors.toList());
-
+            return REMINDER_CACHE.get(days, this::buildRenewalReminders);
         } catch (SQLException e) {
             System.err.println("Error generating renewal reminders: " + e.getMessage());
             // You will also need to add 'import java.util.Collections;' at the top of the file
             return java.util.Collections.singletonList("Automated reminder system failed to query database.");
         }
     }
+
+    private List<String> buildRenewalReminders(int days) throws SQLException {
+        LocalDate now = LocalDate.now();
+        List<License> expiringLicenses = licenseDAO.getLicensesExpiringInDays(days);
+
+        return expiringLicenses.stream()
+                .map(license -> {
+                    long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(now, license.getExpiryDate());
+                    return String.format(
+                            "REMINDER: License %s (Exporter ID: %d) will expire in %d days (%s). Please renew immediately.",
+                            license.getLicenseNumber(),
+                            license.getExporterId(),
+                            remainingDays,
+                            license.getExpiryDate()
+                    );
+                })
+                .collect(Collectors.toUnmodifiableList()); // Shared through the cache
+    }
+
+    /** Hit/miss statistics of the chatbot answer caches. */
+    public static List<CacheStats> getCacheStats() {
+        return List.of(FAQ_ANSWER_CACHE.getStats(), VALIDITY_ANSWER_CACHE.getStats(), REMINDER_CACHE.getStats());
+    }
 }
@@ -0,0 +1,201 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.model.License;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders license PDFs in the background so issuing a license only waits for the DB commit.
+ * Jobs go into a bounded queue served by a fixed number of worker threads. When the queue is full,
+ * producers either block until there is room (BLOCK) or get a RejectedExecutionException (REJECT).
+ * A render that fails with an IOException (disk full, file locked, ...) is retried with a growing
+ * back-off; any other failure is reported straight away.
+ * Callbacks run on the worker thread; UI code must hop to the FX thread itself (Platform.runLater).
+ * Defaults: -Dpdf.queue.workers (2), -Dpdf.queue.capacity (256), -Dpdf.queue.maxAttempts (3),
+ * -Dpdf.queue.overflow (BLOCK or REJECT).
+ */
+public class DocumentRenderQueue {
+
+    public enum OverflowPolicy { BLOCK, REJECT }
+
+    /** Told when a queued document is ready or has definitely failed. */
+    public interface RenderCallback {
+        void onRendered(License license, Path document);
+        void onFailed(License license, Exception error);
+    }
+
+    private static final long RETRY_BACKOFF_MS = 200;
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    private static DocumentRenderQueue defaultQueue;
+
+    private static final class Job {
+        final License license;
+        final String firmName;
+        final RenderCallback callback;
+
+        Job(License license, String firmName, RenderCallback callback) {
+            this.license = license;
+            this.firmName = firmName;
+            this.callback = callback;
+        }
+    }
+
+    private final BlockingQueue<Job> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxAttempts;
+    private final Thread[] workers;
+    private volatile boolean accepting = true;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public DocumentRenderQueue(int workerCount, int capacity, int maxAttempts, OverflowPolicy overflowPolicy) {
+        if (workerCount < 1 || capacity < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Workers, capacity and attempts must be positive.");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxAttempts = maxAttempts;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "pdf-render-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /** The application-wide queue, created on first use from the system properties. */
+    public static synchronized DocumentRenderQueue getDefault() {
+        if (defaultQueue == null) {
+            defaultQueue = new DocumentRenderQueue(
+                    Integer.getInteger("pdf.queue.workers", 2),
+                    Integer.getInteger("pdf.queue.capacity", 256),
+                    Integer.getInteger("pdf.queue.maxAttempts", 3),
+                    OverflowPolicy.valueOf(System.getProperty("pdf.queue.overflow", "BLOCK").toUpperCase()));
+        }
+        return defaultQueue;
+    }
+
+    /**
+     * Queues the license's PDF. Never call with BLOCK from the FX Application Thread.
+     * @throws RejectedExecutionException If the queue is full (REJECT policy) or shut down.
+     * @throws InterruptedException If interrupted while waiting for room (BLOCK policy).
+     */
+    public void submit(License license, String firmName, RenderCallback callback) throws InterruptedException {
+        if (!accepting) {
+            throw new RejectedExecutionException("The document render queue is shut down.");
+        }
+        Job job = new Job(license, firmName, callback);
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            queue.put(job);
+        } else if (!queue.offer(job)) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Document render queue is full (" + queue.size() + " waiting).");
+        }
+    }
+
+    private void work() {
+        while (accepting || !queue.isEmpty()) {
+            Job job;
+            try {
+                job = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job != null) {
+                render(job);
+            }
+        }
+    }
+
+    private void render(Job job) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Path document = LicenseDocumentStore.getDefault().getOrRender(job.license, job.firmName);
+                completed.incrementAndGet();
+                job.callback.onRendered(job.license, document);
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    fail(job, e);
+                    return;
+                }
+                retries.incrementAndGet();
+                System.err.println("PDF for license " + job.license.getLicenseNumber() + " failed (attempt "
+                        + attempt + " of " + maxAttempts + "), retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    fail(job, e);
+                    return;
+                }
+            } catch (Exception e) { // DocumentException: retrying would fail the same way
+                fail(job, e);
+                return;
+            }
+        }
+    }
+
+    private void fail(Job job, Exception error) {
+        failed.incrementAndGet();
+        job.callback.onFailed(job.license, error);
+    }
+
+    /** Jobs waiting for a worker. */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Stops accepting jobs and gives the workers a few seconds to finish what is queued.
+     * (A document that is not rendered in time is rendered when it is next asked for:
+     * LicenseIssuanceService.reprintLicense or the audit archive go through the LicenseDocumentStore.)
+     */
+    public void close() {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MS;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes the application-wide queue, if it was ever used. Called when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (defaultQueue != null) {
+            defaultQueue.close();
+            defaultQueue = null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.FAQDAO;
+import com.foreign_trade.model.FAQ;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory inverted index over the FAQ table with BM25 ranking.
+ * Questions and answers are analyzed by TextAnalyzer (stop words, light stemming); question terms
+ * count double, since the question is what the user is most likely paraphrasing.
+ * Searches read an immutable snapshot, so they never touch the database and never block; a refresh
+ * builds a new snapshot and swaps it in. Refreshes happen on FAQ writes made through FAQDAO and
+ * every -Dchatbot.faq.refreshSeconds (default 300) to pick up edits made outside the application.
+ */
+public class FaqIndex {
+
+    // Standard BM25 parameters: term-frequency saturation and document-length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int QUESTION_WEIGHT = 2;
+
+    /** A ranked search hit. */
+    public static class Match {
+        private final FAQ faq;
+        private final double score;
+
+        Match(FAQ faq, double score) {
+            this.faq = faq;
+            this.score = score;
+        }
+
+        public FAQ getFaq() { return faq; }
+        public double getScore() { return score; }
+    }
+
+    /** Documents containing one term, with the term's (weighted) frequency in each. */
+    private static final class Postings {
+        final int[] docs;
+        final int[] frequencies;
+
+        Postings(int[] docs, int[] frequencies) {
+            this.docs = docs;
+            this.frequencies = frequencies;
+        }
+    }
+
+    /** Immutable index over one load of the FAQ table. */
+    private static final class Snapshot {
+        final FAQ[] faqs;
+        final int[] lengths;
+        final double averageLength;
+        final Map<String, Postings> postings;
+        final long generation;
+
+        Snapshot(List<FAQ> rows, long generation) {
+            this.generation = generation;
+            faqs = rows.toArray(new FAQ[0]);
+            lengths = new int[faqs.length];
+            Map<String, Map<Integer, Integer>> building = new HashMap<>();
+            long totalLength = 0;
+
+            for (int doc = 0; doc < faqs.length; doc++) {
+                List<String> questionTerms = TextAnalyzer.terms(faqs[doc].getQuestion());
+                List<String> answerTerms = TextAnalyzer.terms(faqs[doc].getAnswer());
+                for (String term : questionTerms) {
+                    building.computeIfAbsent(term, t -> new LinkedHashMap<>()).merge(doc, QUESTION_WEIGHT, Integer::sum);
+                }
+                for (String term : answerTerms) {
+                    building.computeIfAbsent(term, t -> new LinkedHashMap<>()).merge(doc, 1, Integer::sum);
+                }
+                lengths[doc] = questionTerms.size() * QUESTION_WEIGHT + answerTerms.size();
+                totalLength += lengths[doc];
+            }
+            averageLength = faqs.length == 0 ? 0 : (double) totalLength / faqs.length;
+
+            postings = new HashMap<>(building.size() * 2);
+            for (Map.Entry<String, Map<Integer, Integer>> term : building.entrySet()) {
+                int[] docs = new int[term.getValue().size()];
+                int[] frequencies = new int[docs.length];
+                int i = 0;
+                for (Map.Entry<Integer, Integer> posting : term.getValue().entrySet()) {
+                    docs[i] = posting.getKey();
+                    frequencies[i++] = posting.getValue();
+                }
+                postings.put(term.getKey(), new Postings(docs, frequencies));
+            }
+        }
+    }
+
+    private final FAQDAO faqDAO;
+    private final long refreshSeconds;
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService refresher;
+
+    public FaqIndex(FAQDAO faqDAO, long refreshSeconds) {
+        this.faqDAO = faqDAO;
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    /**
+     * Returns the best-scoring FAQ for the text, loading the index on first use.
+     * @return The best match, or null if no FAQ shares a meaningful term with the text.
+     * @throws SQLException If the index has never been loaded and the FAQ table cannot be read.
+     */
+    public Match search(String text) throws SQLException {
+        Snapshot current = ensureLoaded();
+        if (current.faqs.length == 0) {
+            return null;
+        }
+
+        double[] scores = new double[current.faqs.length];
+        int best = -1;
+        for (String term : new LinkedHashSet<>(TextAnalyzer.terms(text))) {
+            Postings postings = current.postings.get(term);
+            if (postings == null) {
+                continue;
+            }
+            int documentFrequency = postings.docs.length;
+            double idf = Math.log(1 + (current.faqs.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (int i = 0; i < postings.docs.length; i++) {
+                int doc = postings.docs[i];
+                double tf = postings.frequencies[i];
+                double norm = K1 * (1 - B + B * current.lengths[doc] / current.averageLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                if (best < 0 || scores[doc] > scores[best]) {
+                    best = doc;
+                }
+            }
+        }
+        return best < 0 ? null : new Match(current.faqs[best], scores[best]);
+    }
+
+    /**
+     * Reloads the FAQ table and swaps in a new snapshot; searches keep using the old one meanwhile.
+     */
+    public void refresh() throws SQLException {
+        List<FAQ> rows = faqDAO.getAllFAQs();
+        synchronized (this) {
+            Snapshot previous = snapshot;
+            snapshot = new Snapshot(rows, previous == null ? 1 : previous.generation + 1);
+        }
+    }
+
+    /**
+     * Identifies the current snapshot; it changes on every refresh, so results cached under it
+     * can never outlive the FAQ contents they were computed from. Loads the index on first use.
+     */
+    public long getGeneration() throws SQLException {
+        return ensureLoaded().generation;
+    }
+
+    /** Number of FAQs in the current snapshot (0 if not loaded yet). */
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.faqs.length;
+    }
+
+    private Snapshot ensureLoaded() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                refresh();
+                startRefreshing();
+            }
+            return snapshot;
+        }
+    }
+
+    // Periodic reload, plus a reload whenever FAQDAO writes a row
+    private void startRefreshing() {
+        refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "faq-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (refreshSeconds > 0) {
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+        FAQDAO.addChangeListener(() -> refresher.execute(this::refreshQuietly));
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (SQLException e) {
+            System.err.println("FAQ index refresh failed (keeping the previous index): " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.foreign_trade.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifies chatbot messages and extracts their license numbers in a single pass over the input.
+ * Intent keywords are compiled once into an Aho-Corasick automaton (a DFA over the keywords'
+ * characters with failure links folded in), so every character costs one table lookup no matter how
+ * many keywords there are. The license-number extractor ([A-Z]{2,4}-\d{4}-\d{4,6}, case-insensitive;
+ * six-digit serials come from LicenseNumberAllocator once a sequence passes 99999) is a small state
+ * machine fed by the same loop, so the input is neither lowercased nor uppercased as a whole and no
+ * regex is compiled per message. IntentRouterBenchmark checks it against that pattern.
+ * Immutable after construction and safe to share between threads (see getDefault()).
+ */
+public class IntentRouter {
+
+    /** What the user is asking for. Declaration order is the priority when several intents match. */
+    public enum Intent {
+        BULK_VALIDITY("check these", "these licenses", "validate these"),
+        LICENSE_VALIDITY("status of", "valid"),
+        RENEWAL_REMINDERS("expiring", "reminders"),
+        FAQ;
+
+        private final String[] keywords;
+
+        Intent(String... keywords) {
+            this.keywords = keywords;
+        }
+    }
+
+    /** The routing decision for one message. */
+    public static class Route {
+        private final Intent intent;
+        private final List<String> licenseNumbers;
+
+        Route(Intent intent, List<String> licenseNumbers) {
+            this.intent = intent;
+            this.licenseNumbers = licenseNumbers;
+        }
+
+        public Intent getIntent() { return intent; }
+
+        /** The first license number in the message (uppercased), or "" if there is none. */
+        public String getLicenseNumber() { return licenseNumbers.isEmpty() ? "" : licenseNumbers.get(0); }
+
+        /** Every license number in the message (uppercased), in order. */
+        public List<String> getLicenseNumbers() { return licenseNumbers; }
+    }
+
+    private static final IntentRouter DEFAULT = new IntentRouter(defaultKeywords());
+
+    // --- Automaton (ASCII keyword characters only; anything else resets to the root) ---
+    private final int[] charClass = new int[128];     // char (either case) -> column, or -1
+    private final int[][] transitions;                // state x column -> state
+    private final long[] matchedIntents;              // state -> bit set of Intent ordinals ending here
+
+    /**
+     * Builds the automaton for the given keyword lists (keywords are matched case-insensitively).
+     */
+    public IntentRouter(Map<Intent, List<String>> keywordsByIntent) {
+        // 1. Alphabet: the distinct (lowercased) characters of all keywords
+        Arrays.fill(charClass, -1);
+        int columns = 0;
+        for (List<String> keywords : keywordsByIntent.values()) {
+            for (String keyword : keywords) {
+                for (char c : keyword.toLowerCase().toCharArray()) {
+                    if (c >= 128) {
+                        throw new IllegalArgumentException("Keywords must be ASCII: " + keyword);
+                    }
+                    if (charClass[c] < 0) {
+                        charClass[c] = columns;
+                        charClass[Character.toUpperCase(c)] = columns++; // Case folding is baked into the table
+                    }
+                }
+            }
+        }
+
+        // 2. Trie
+        List<int[]> trie = new ArrayList<>();
+        List<Long> outputs = new ArrayList<>();
+        trie.add(newRow(columns));
+        outputs.add(0L);
+        for (Map.Entry<Intent, List<String>> entry : keywordsByIntent.entrySet()) {
+            for (String keyword : entry.getValue()) {
+                int state = 0;
+                for (char c : keyword.toLowerCase().toCharArray()) {
+                    int column = charClass[c];
+                    if (trie.get(state)[column] < 0) {
+                        trie.get(state)[column] = trie.size();
+                        trie.add(newRow(columns));
+                        outputs.add(0L);
+                    }
+                    state = trie.get(state)[column];
+                }
+                outputs.set(state, outputs.get(state) | (1L << entry.getKey().ordinal()));
+            }
+        }
+
+        // 3. Failure links, breadth first, folded into a complete transition table
+        transitions = trie.toArray(new int[0][]);
+        matchedIntents = new long[transitions.length];
+        for (int state = 0; state < transitions.length; state++) {
+            matchedIntents[state] = outputs.get(state);
+        }
+        int[] failure = new int[transitions.length];
+        int[] queue = new int[transitions.length];
+        int head = 0;
+        int tail = 0;
+        for (int column = 0; column < columns; column++) {
+            int next = transitions[0][column];
+            if (next < 0) {
+                transitions[0][column] = 0;
+            } else {
+                failure[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            matchedIntents[state] |= matchedIntents[failure[state]];
+            for (int column = 0; column < columns; column++) {
+                int next = transitions[state][column];
+                if (next < 0) {
+                    transitions[state][column] = transitions[failure[state]][column];
+                } else {
+                    failure[next] = transitions[failure[state]][column];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /** The router for the built-in intents, built once. */
+    public static IntentRouter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Classifies the message and extracts its license numbers in one pass.
+     */
+    public Route route(String input) {
+        long intents = 0;
+        int state = 0;
+
+        // License-number scanner state
+        int letterRun = 0;      // consecutive letters ending at the previous character
+        int phase = 0;          // 0 = letters, 1 = first digit group, 2 = second digit group
+        int digits = 0;
+        int start = -1;
+        List<String> licenseNumbers = null;
+
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+
+            // Keywords
+            int column = c < 128 ? charClass[c] : -1;
+            state = column < 0 ? 0 : transitions[state][column];
+            intents |= matchedIntents[state];
+
+            // License numbers: [A-Z]{2,4}-\d{4}-\d{4,6}, matched left to right like Matcher.find()
+            boolean letter = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            boolean digit = c >= '0' && c <= '9';
+            if (phase == 1 && digit && digits < 4) {
+                digits++;
+            } else if (phase == 1 && c == '-' && digits == 4) {
+                phase = 2;
+                digits = 0;
+            } else if (phase == 2 && digit) {
+                if (++digits == 6) {
+                    licenseNumbers = add(licenseNumbers, input.substring(start, i + 1)); // \d{4,6} is greedy: stop at six
+                    phase = 0;
+                }
+            } else {
+                if (phase == 2 && digits >= 4) {
+                    licenseNumbers = add(licenseNumbers, input.substring(start, i));
+                }
+                phase = 0;
+                if (c == '-' && letterRun >= 2) {
+                    phase = 1;
+                    digits = 0;
+                    start = i - Math.min(letterRun, 4);
+                }
+            }
+            letterRun = letter ? letterRun + 1 : 0;
+        }
+        if (phase == 2 && digits >= 4) {
+            licenseNumbers = add(licenseNumbers, input.substring(start));
+        }
+
+        Intent intent = Intent.FAQ;
+        if (intents != 0) {
+            intent = Intent.values()[Long.numberOfTrailingZeros(intents)];
+        }
+        return new Route(intent, licenseNumbers == null ? Collections.emptyList() : licenseNumbers);
+    }
+
+    private static List<String> add(List<String> licenseNumbers, String licenseNumber) {
+        List<String> list = licenseNumbers == null ? new ArrayList<>(2) : licenseNumbers;
+        list.add(licenseNumber.toUpperCase());
+        return list;
+    }
+
+    private static int[] newRow(int columns) {
+        int[] row = new int[columns];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static Map<Intent, List<String>> defaultKeywords() {
+        Map<Intent, List<String>> keywords = new LinkedHashMap<>();
+        for (Intent intent : Intent.values()) {
+            if (intent.keywords.length > 0) {
+                keywords.put(intent, Arrays.asList(intent.keywords));
+            }
+        }
+        return keywords;
+    }
+}
@@ -0,0 +1,329 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.model.License;
+import com.itextpdf.text.DocumentException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Content-addressed store for license PDFs.
+ * A document is identified by the SHA-256 of everything that goes into it (the license fields,
+ * the firm name and the template version) and saved once as objects/<2 hex>/<hash>.pdf.
+ * A compact append-only index file maps each license number to the hash of its current document,
+ * so reprints and audit pulls are plain file reads, and a document is only rendered again when
+ * its inputs (or the template) actually change.
+ *
+ * Index format: a header (magic, format version) followed by records of
+ * [2-byte length][license number, UTF-8][32-byte hash]; the last record for a number wins.
+ * A record cut short by a crash is dropped (and the file truncated) on the next open.
+ */
+public class LicenseDocumentStore {
+
+    private static final int INDEX_MAGIC = 0x4C494458; // "LIDX"
+    private static final int INDEX_FORMAT = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int HASH_SIZE = 32;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int ARCHIVE_BUFFER_SIZE = 64 * 1024;
+
+    private static LicenseDocumentStore defaultStore;
+
+    private final Path objectsDir;
+    private final Path indexFile;
+    private final PdfGenerator pdfGenerator;
+    private final String renderVersion;
+
+    // License number -> hash of its current document (guarded by this)
+    private final Map<String, byte[]> index = new HashMap<>();
+    private long hits;
+    private long renders;
+
+    /**
+     * Opens (or creates) a store under the given directory and loads its index.
+     */
+    public LicenseDocumentStore(Path root, PdfGenerator pdfGenerator) throws IOException {
+        this.objectsDir = root.resolve("objects");
+        this.indexFile = root.resolve("index.bin");
+        this.pdfGenerator = pdfGenerator;
+        this.renderVersion = pdfGenerator.isTemplateMode() ? "template-" + PdfGenerator.TEMPLATE_VERSION : "layout";
+        Files.createDirectories(objectsDir);
+        loadIndex();
+    }
+
+    /**
+     * The application-wide store in generated_licenses/ (override with -Dlicense.store.dir).
+     */
+    public static synchronized LicenseDocumentStore getDefault() throws IOException {
+        if (defaultStore == null) {
+            defaultStore = new LicenseDocumentStore(
+                    Paths.get(System.getProperty("license.store.dir", "generated_licenses")), new PdfGenerator());
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Returns the license's document, rendering it only if no current copy exists.
+     * Safe to call from several threads; rendering happens outside the index lock.
+     * @return Path of the stored PDF.
+     */
+    public Path getOrRender(License license, String exporterFirmName) throws DocumentException, IOException {
+        byte[] hash = hash(license, exporterFirmName);
+        Path document = pathOf(hash);
+
+        synchronized (this) {
+            if (Arrays.equals(hash, index.get(license.getLicenseNumber())) && Files.exists(document)) {
+                hits++;
+                return document;
+            }
+        }
+
+        boolean rendered = false;
+        if (!Files.exists(document)) {
+            render(license, exporterFirmName, document);
+            rendered = true;
+        }
+
+        synchronized (this) {
+            if (rendered) {
+                renders++;
+            }
+            appendToIndex(license.getLicenseNumber(), hash);
+        }
+        return document;
+    }
+
+    /**
+     * Looks up the current document of a license without rendering anything.
+     * @return The stored PDF, or null if the license has never been rendered (or the file was removed).
+     */
+    public Path find(String licenseNumber) {
+        byte[] hash;
+        synchronized (this) {
+            hash = index.get(licenseNumber);
+        }
+        if (hash == null) {
+            return null;
+        }
+        Path document = pathOf(hash);
+        return Files.exists(document) ? document : null;
+    }
+
+    /**
+     * Copies a stored document into the channel (reprints, audit pulls) without re-rendering.
+     * @return false if the license has no stored document.
+     */
+    public boolean copyTo(String licenseNumber, WritableByteChannel target) throws IOException {
+        Path document = find(licenseNumber);
+        if (document == null) {
+            return false;
+        }
+        FileChannel source = FileChannel.open(document, StandardOpenOption.READ);
+        try {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+        } finally {
+            source.close();
+        }
+        return true;
+    }
+
+    /**
+     * Writes one PDF per license into a single ZIP archive (e.g. for auditors).
+     * Stored documents are copied as they are; only licenses without a current document are
+     * rendered (and kept in the store for the next pull). Entries are named like the files
+     * PdfGenerator.generateLicensePdf writes.
+     * @param licenses The licenses to export, consumed once (e.g. LicenseDAO.streamAllLicenses().iterator()).
+     * @param firmNameByExporterId Firm name lookup for the "Issued To" field.
+     * @param channel Destination, left open for the caller to close.
+     * @return The number of PDFs written.
+     */
+    public long writeArchive(Iterator<License> licenses, IntFunction<String> firmNameByExporterId,
+                             WritableByteChannel channel) throws DocumentException, IOException {
+        ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), ARCHIVE_BUFFER_SIZE));
+        WritableByteChannel entry = Channels.newChannel(zip);
+        long written = 0;
+
+        while (licenses.hasNext()) {
+            License license = licenses.next();
+            getOrRender(license, firmNameByExporterId.apply(license.getExporterId()));
+            zip.putNextEntry(new ZipEntry(PdfGenerator.fileNameOf(license)));
+            if (!copyTo(license.getLicenseNumber(), entry)) {
+                throw new IOException("Document of license " + license.getLicenseNumber() + " was removed while archiving.");
+            }
+            zip.closeEntry();
+            written++;
+        }
+
+        zip.finish(); // Writes the central directory without closing the channel
+        zip.flush();
+        return written;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getRenderCount() {
+        return renders;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    // --- Documents ---
+
+    private Path pathOf(byte[] hash) {
+        String hex = HEX.formatHex(hash);
+        return objectsDir.resolve(hex.substring(0, 2)).resolve(hex + ".pdf");
+    }
+
+    // Renders into a temp file next to the target and moves it into place, so readers never see a partial PDF
+    private void render(License license, String exporterFirmName, Path document) throws DocumentException, IOException {
+        Files.createDirectories(document.getParent());
+        Path temp = Files.createTempFile(document.getParent(), "render-", ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                pdfGenerator.writeLicensePdf(license, exporterFirmName, channel);
+            } finally {
+                channel.close();
+            }
+            Files.move(temp, document, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private byte[] hash(License license, String exporterFirmName) {
+        String inputs = String.join("\u0000",
+                renderVersion,
+                license.getLicenseNumber(),
+                String.valueOf(license.getExporterId()),
+                String.valueOf(exporterFirmName),
+                String.valueOf(license.getIssueDate()),
+                String.valueOf(license.getExpiryDate()),
+                String.valueOf(license.getSignatureUrl()));
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(inputs.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JRE must provide it
+        }
+    }
+
+    // --- Index ---
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            writeIndexFile(index);
+            return;
+        }
+
+        long validLength = HEADER_SIZE;
+        int records = 0;
+        InputStream in = new BufferedInputStream(Files.newInputStream(indexFile));
+        try {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != INDEX_MAGIC || data.readInt() != INDEX_FORMAT) {
+                throw new IOException("Not a license document index: " + indexFile);
+            }
+            while (true) {
+                byte[] number;
+                byte[] hash = new byte[HASH_SIZE];
+                try {
+                    number = new byte[data.readUnsignedShort()];
+                    data.readFully(number);
+                    data.readFully(hash);
+                } catch (EOFException e) {
+                    break; // End of file, or a record cut short by a crash
+                }
+                index.put(new String(number, StandardCharsets.UTF_8), hash);
+                validLength += 2 + number.length + HASH_SIZE;
+                records++;
+            }
+        } finally {
+            in.close();
+        }
+
+        if (records > 2 * index.size() + 1000) {
+            writeIndexFile(index); // Mostly superseded records: compact
+        } else if (Files.size(indexFile) != validLength) {
+            FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE);
+            try {
+                channel.truncate(validLength);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Rewrites the whole index (new store or compaction) via a temp file and an atomic rename
+    private void writeIndexFile(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE + entries.size() * 64);
+        DataOutputStream data = new DataOutputStream(buffer);
+        data.writeInt(INDEX_MAGIC);
+        data.writeInt(INDEX_FORMAT);
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            writeRecord(data, entry.getKey(), entry.getValue());
+        }
+
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, buffer.toByteArray());
+        Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Caller holds the lock
+    private void appendToIndex(String licenseNumber, byte[] hash) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        writeRecord(new DataOutputStream(buffer), licenseNumber, hash);
+
+        FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            ByteBuffer record = ByteBuffer.wrap(buffer.toByteArray());
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } finally {
+            channel.close();
+        }
+        index.put(licenseNumber, hash);
+    }
+
+    private static void writeRecord(DataOutputStream data, String licenseNumber, byte[] hash) throws IOException {
+        byte[] number = licenseNumber.getBytes(StandardCharsets.UTF_8);
+        data.writeShort(number.length);
+        data.write(number);
+        data.write(hash);
+    }
+}
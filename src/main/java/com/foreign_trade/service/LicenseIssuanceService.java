@@ -1,19 +1,46 @@
 package com.foreign_trade.service;
 
+import com.foreign_trade.dao.DataAccessException;
 import com.foreign_trade.dao.ExporterDAO;
 import com.foreign_trade.dao.LicenseDAO;
+import com.foreign_trade.dao.LicenseSequenceDAO;
 import com.foreign_trade.model.Exporter;
 import com.foreign_trade.model.License;
+import com.itextpdf.text.DocumentException;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public class LicenseIssuanceService {
 
     private final ExporterDAO exporterDAO = new ExporterDAO();
     private final LicenseDAO licenseDAO = new LicenseDAO();
-    private final Random random = new Random();
+
+    // "Issued To" on the PDF when the exporter row cannot be found; the same everywhere so the
+    // document store recognises an already rendered document
+    public static final String UNKNOWN_FIRM = "Unknown Firm";
+
+    // Shared by every service instance so blocks of serials are not wasted per controller
+    private static final LicenseNumberAllocator NUMBER_ALLOCATOR = new LicenseNumberAllocator(
+            new LicenseSequenceDAO(), Integer.getInteger("license.sequence.blockSize", 20));
+
+    // Bulk issuance: licenses committed per transaction, and threads rendering PDFs
+    private static final int BULK_TRANSACTION_SIZE = Integer.getInteger("license.bulk.transactionSize", 100);
+    private static final int BULK_PDF_WORKERS = Integer.getInteger("license.bulk.pdfWorkers",
+            Runtime.getRuntime().availableProcessors());
 
     // Custom Exception for business rule failure
     public static class PrerequisiteException extends Exception {
@@ -22,6 +49,61 @@ public class LicenseIssuanceService {
         }
     }
 
+    /** One entry of a bulk issuance: which exporter, and for how long. */
+    public static class BulkRequest {
+        private final String iecNumber;
+        private final int expiryPeriodDays;
+
+        public BulkRequest(String iecNumber, int expiryPeriodDays) {
+            this.iecNumber = iecNumber;
+            this.expiryPeriodDays = expiryPeriodDays;
+        }
+
+        public String getIecNumber() { return iecNumber; }
+        public int getExpiryPeriodDays() { return expiryPeriodDays; }
+    }
+
+    /** What happened to one BulkRequest. */
+    public static class BulkOutcome {
+        public enum Status {
+            ISSUED,      // License committed and PDF written
+            PDF_FAILED,  // License committed, but its PDF could not be written
+            REJECTED,    // Exporter not registered; nothing was inserted
+            FAILED       // Database error; nothing was inserted
+        }
+
+        private final BulkRequest request;
+        private Status status;
+        private License license;
+        private String pdfPath;
+        private Exception error;
+
+        BulkOutcome(BulkRequest request) {
+            this.request = request;
+        }
+
+        private BulkOutcome finish(Status status, Exception error) {
+            this.status = status;
+            this.error = error;
+            return this;
+        }
+
+        public BulkRequest getRequest() { return request; }
+        public Status getStatus() { return status; }
+        public License getLicense() { return license; }
+        public String getPdfPath() { return pdfPath; }
+        public Exception getError() { return error; }
+    }
+
+    /**
+     * Receives each outcome as soon as it is final. Calls come from worker threads but never
+     * overlap, and completed counts up to total.
+     */
+    @FunctionalInterface
+    public interface BulkProgressListener {
+        void onProgress(BulkOutcome outcome, int completed, int total);
+    }
+
     /**
      * Validates prerequisites and issues a new license.
      * 1. Checks if the Exporter exists via IEC.
@@ -46,7 +128,7 @@ public class LicenseIssuanceService {
         int exporterId = exporter.getExporterId();
         LocalDate issueDate = LocalDate.now();
         LocalDate expiryDate = issueDate.plusDays(expiryPeriodDays);
-        String licenseNumber = generateUniqueLicenseNumber(exporter.getCountry());
+        String licenseNumber = generateUniqueLicenseNumber(exporter.getCountry(), issueDate.getYear());
         String signatureUrl = "/signatures/" + exporterId + ".png"; // Placeholder signature path
 
         // --- 3. Create and Insert License ---
@@ -65,11 +147,197 @@ public class LicenseIssuanceService {
     }
 
     /**
-     * Generates a unique, country-prefixed license number (simple implementation).
+     * Generates a unique, country-prefixed license number from the per-prefix, per-year sequence.
      */
-    private String generateUniqueLicenseNumber(String country) {
+    private String generateUniqueLicenseNumber(String country, int year) throws SQLException {
         String prefix = country.length() >= 3 ? country.substring(0, 3).toUpperCase() : "GEN";
-        int uniqueNum = 10000 + random.nextInt(90000);
-        return prefix + "-" + LocalDate.now().getYear() + "-" + uniqueNum;
+        return NUMBER_ALLOCATOR.nextLicenseNumber(prefix, year);
+    }
+
+    /**
+     * Issues licenses for many exporters at once (e.g. renewal season), using the default
+     * transaction size and one PDF worker per core.
+     */
+    public List<BulkOutcome> issueLicensesInBulk(List<BulkRequest> requests, BulkProgressListener listener)
+            throws SQLException, IOException, InterruptedException {
+        return issueLicensesInBulk(requests, BULK_TRANSACTION_SIZE, BULK_PDF_WORKERS, listener);
+    }
+
+    /**
+     * Issues licenses for many exporters at once.
+     * 1. Resolves all exporters with batched IEC lookups; unknown IECs are REJECTED.
+     * 2. Inserts the licenses in batched transactions of transactionSize rows. A failing
+     *    transaction only fails its own rows (FAILED); the other transactions still commit.
+     * 3. Renders the PDFs of each committed transaction (through the LicenseDocumentStore) on a pool of pdfWorkers threads while
+     *    the next transaction is being inserted.
+     * @return One outcome per request, in request order.
+     * @throws SQLException If the exporters cannot be looked up (nothing has been inserted then).
+     * @throws IOException If the license document store cannot be opened (nothing has been inserted then).
+     */
+    public List<BulkOutcome> issueLicensesInBulk(List<BulkRequest> requests, int transactionSize, int pdfWorkers,
+                                                 BulkProgressListener listener)
+            throws SQLException, IOException, InterruptedException {
+        if (transactionSize < 1 || pdfWorkers < 1) {
+            throw new IllegalArgumentException("Transaction size and worker count must be positive.");
+        }
+        BulkOutcome[] outcomes = new BulkOutcome[requests.size()];
+        BulkProgress progress = new BulkProgress(requests.size(), listener);
+
+        // --- 1. Check IEC Prerequisites (one query per few hundred IECs) ---
+        List<String> iecNumbers = new ArrayList<>(requests.size());
+        for (BulkRequest request : requests) {
+            iecNumbers.add(request.getIecNumber());
+        }
+        Map<String, Exporter> exporters = exporterDAO.getExportersByIec(iecNumbers);
+
+        // Caller-runs once the queue is full, so a fast database cannot pile up unrendered PDFs
+        ThreadPoolExecutor pdfPool = new ThreadPoolExecutor(pdfWorkers, pdfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pdfWorkers * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        LicenseDocumentStore documentStore = LicenseDocumentStore.getDefault();
+        LocalDate issueDate = LocalDate.now();
+
+        try {
+            List<BulkOutcome> batch = new ArrayList<>(transactionSize);
+            for (int i = 0; i < requests.size(); i++) {
+                BulkRequest request = requests.get(i);
+                BulkOutcome outcome = new BulkOutcome(request);
+                outcomes[i] = outcome;
+
+                Exporter exporter = exporters.get(request.getIecNumber());
+                if (exporter == null) {
+                    progress.report(outcome.finish(BulkOutcome.Status.REJECTED, new PrerequisiteException(
+                            "License application rejected: Exporter with IEC " + request.getIecNumber() + " is not registered.")));
+                    continue;
+                }
+
+                // --- 2. Prepare License Details ---
+                try {
+                    String licenseNumber = generateUniqueLicenseNumber(exporter.getCountry(), issueDate.getYear());
+                    outcome.license = new License(
+                            exporter.getExporterId(),
+                            licenseNumber,
+                            issueDate,
+                            issueDate.plusDays(request.getExpiryPeriodDays()),
+                            "/signatures/" + exporter.getExporterId() + ".png"
+                    );
+                } catch (SQLException e) {
+                    progress.report(outcome.finish(BulkOutcome.Status.FAILED, e));
+                    continue;
+                }
+                batch.add(outcome);
+
+                if (batch.size() == transactionSize) {
+                    commitAndRender(batch, exporters, pdfPool, documentStore, progress);
+                    batch = new ArrayList<>(transactionSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                commitAndRender(batch, exporters, pdfPool, documentStore, progress);
+            }
+
+            pdfPool.shutdown();
+            pdfPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            pdfPool.shutdownNow(); // Only has work left if we were interrupted
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * --- 3. Insert one transaction's licenses, then queue their PDFs ---
+     */
+    private void commitAndRender(List<BulkOutcome> batch, Map<String, Exporter> exporters,
+                                 ThreadPoolExecutor pdfPool, LicenseDocumentStore documentStore, BulkProgress progress) {
+        List<License> licenses = new ArrayList<>(batch.size());
+        for (BulkOutcome outcome : batch) {
+            licenses.add(outcome.license);
+        }
+        try {
+            licenseDAO.insertAll(licenses); // Writes the generated IDs back onto each License
+        } catch (SQLException e) {
+            System.err.println("Bulk issuance: transaction of " + batch.size() + " licenses rolled back: " + e.getMessage());
+            for (BulkOutcome outcome : batch) {
+                outcome.license = null;
+                progress.report(outcome.finish(BulkOutcome.Status.FAILED, e));
+            }
+            return;
+        }
+
+        for (BulkOutcome outcome : batch) {
+            String firmName = exporters.get(outcome.request.getIecNumber()).getFirmName();
+            pdfPool.execute(() -> {
+                try {
+                    outcome.pdfPath = documentStore.getOrRender(outcome.license, firmName).toString();
+                    outcome.finish(BulkOutcome.Status.ISSUED, null);
+                } catch (Exception e) { // DocumentException, IOException
+                    outcome.finish(BulkOutcome.Status.PDF_FAILED, e);
+                }
+                progress.report(outcome);
+            });
+        }
+    }
+
+    /** Counts finished outcomes and forwards them to the listener one at a time. */
+    private static class BulkProgress {
+        private final int total;
+        private final BulkProgressListener listener;
+        private int completed;
+
+        BulkProgress(int total, BulkProgressListener listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        synchronized void report(BulkOutcome outcome) {
+            completed++;
+            if (listener != null) {
+                listener.onProgress(outcome, completed, total);
+            }
+        }
+    }
+
+    /**
+     * Returns the PDF of an issued license, rendering it only if the LicenseDocumentStore has no
+     * current copy (e.g. the render queue was full or the application stopped before it got to it).
+     * @return Path of the stored PDF.
+     * @throws PrerequisiteException If no license has this number.
+     */
+    public Path reprintLicense(String licenseNumber)
+            throws SQLException, DocumentException, IOException, PrerequisiteException {
+        License license = licenseDAO.getLicenseByNumber(licenseNumber);
+        if (license == null) {
+            throw new PrerequisiteException("License " + licenseNumber + " does not exist.");
+        }
+        Exporter exporter = exporterDAO.getExporterById(license.getExporterId());
+        String firmName = (exporter != null) ? exporter.getFirmName() : UNKNOWN_FIRM;
+        return LicenseDocumentStore.getDefault().getOrRender(license, firmName);
+    }
+
+    /**
+     * Exports the PDFs of every license into one ZIP file for audits.
+     * Licenses are streamed from the database and their documents copied out of the
+     * LicenseDocumentStore (rendering only the ones it does not have yet), so memory use does not
+     * grow with the number of licenses.
+     * @return The number of license PDFs in the archive.
+     */
+    public long exportLicenseArchive(Path zipFile) throws SQLException, DocumentException, IOException {
+        Map<Integer, String> firmNames = new HashMap<>();
+        for (Exporter exporter : exporterDAO.getAllExporters()) {
+            firmNames.put(exporter.getExporterId(), exporter.getFirmName());
+        }
+
+        FileChannel channel = FileChannel.open(zipFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Stream<License> licenses = null;
+        try {
+            licenses = licenseDAO.streamAllLicenses();
+            return LicenseDocumentStore.getDefault().writeArchive(licenses.iterator(),
+                    exporterId -> firmNames.getOrDefault(exporterId, UNKNOWN_FIRM), channel);
+        } catch (DataAccessException e) {
+            throw e.getCause(); // Row read failure while streaming
+        } finally {
+            if (licenses != null) licenses.close();
+            channel.close();
+        }
     }
 }
@@ -0,0 +1,74 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.LicenseSequenceDAO;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique license serial numbers per (prefix, year) using hi/lo block allocation.
+ * Each instance reserves a block of numbers in the license_sequence table and hands them out with
+ * a lock-free counter; only refilling an exhausted block takes a (per-key) lock and a DB round trip.
+ * Numbers left in a block when the app exits are skipped, so serials can have gaps but never repeat.
+ */
+public class LicenseNumberAllocator {
+
+    private static class Block {
+        final AtomicInteger next;
+        final int end; // exclusive
+
+        Block(int first, int size) {
+            this.next = new AtomicInteger(first);
+            this.end = first + size;
+        }
+    }
+
+    private final LicenseSequenceDAO sequenceDAO;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private final Map<String, Object> refillLocks = new ConcurrentHashMap<>();
+
+    public LicenseNumberAllocator(LicenseSequenceDAO sequenceDAO, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.sequenceDAO = sequenceDAO;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next unused serial for the prefix and year.
+     */
+    public int nextSerial(String prefix, int year) throws SQLException {
+        String key = prefix + "-" + year;
+        while (true) {
+            Block block = blocks.get(key);
+            if (block != null) {
+                int serial = block.next.getAndIncrement();
+                if (serial < block.end) {
+                    return serial;
+                }
+            }
+            refill(key, block, prefix, year);
+        }
+    }
+
+    private void refill(String key, Block exhausted, String prefix, int year) throws SQLException {
+        synchronized (refillLocks.computeIfAbsent(key, k -> new Object())) {
+            // Another thread may already have refilled while we waited for the lock
+            if (blocks.get(key) == exhausted) {
+                int first = sequenceDAO.reserveBlock(prefix, year, blockSize);
+                blocks.put(key, new Block(first, blockSize));
+            }
+        }
+    }
+
+    /**
+     * Builds the full license number, e.g. "IND-2025-10042".
+     */
+    public String nextLicenseNumber(String prefix, int year) throws SQLException {
+        return prefix + "-" + year + "-" + nextSerial(prefix, year);
+    }
+}
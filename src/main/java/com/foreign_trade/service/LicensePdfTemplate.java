@@ -0,0 +1,281 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.model.License;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfEncodings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * The one-page license PDF with everything that never changes assembled once, at class load:
+ * the catalog, page and font objects, and the content-stream operators for the title, the field
+ * labels and the boilerplate. A render only appends the variable field values, the content
+ * stream length and the cross-reference table, so it costs a few kilobytes of copying instead
+ * of a full iText Document/PdfWriter life cycle.
+ * The objects are written by hand because the writer life cycle is most of the cost: stamping the
+ * fields through an iText PdfStamper was slower than layout mode, and drawing the page with a
+ * PdfWriter and cached BaseFonts was only about 2x faster with 1.4x less allocation (PdfRenderBenchmark),
+ * where this class is about 12x and 7x. iText is still used through its public API for font metrics
+ * (to place values after their labels and fit them to the line) and WinAnsi encoding.
+ * A value too wide for the space left on its line is set in a smaller size, down to 7pt; values
+ * that do not fit even then are for the layout renderer, which wraps them (see fits(...)).
+ * All state is immutable, so render(...) is safe to call from several threads.
+ */
+final class LicensePdfTemplate {
+
+    /** A labelled line: the label is part of the template, the value is stamped right after it. */
+    private static final class Row {
+        final String label;
+        final String fontName;
+        final BaseFont font;
+        final float size;
+        final BaseColor color;
+        final float y;
+        final float valueX;
+
+        Row(String label, String fontName, BaseFont font, float size, BaseColor color, float y) {
+            this.label = label;
+            this.fontName = fontName;
+            this.font = font;
+            this.size = size;
+            this.color = color;
+            this.y = y;
+            this.valueX = LEFT + font.getWidthPoint(label + " ", size);
+        }
+    }
+
+    // A4 page with the iText Document default 36pt margins
+    private static final float PAGE_WIDTH = 595;
+    private static final float PAGE_HEIGHT = 842;
+    private static final float LEFT = 36;
+    private static final float RIGHT = PAGE_WIDTH - 36;
+    private static final float MIN_VALUE_SIZE = 7;
+
+    // Resource names used in the content stream (see the page's /Font dictionary)
+    private static final String REGULAR = "/F1";
+    private static final String BOLD = "/F2";
+
+    private static final BaseFont HELVETICA = baseFont(BaseFont.HELVETICA);
+    private static final BaseFont HELVETICA_BOLD = baseFont(BaseFont.HELVETICA_BOLD);
+
+    private static final String TITLE = "FOREIGN TRADE EXPORT LICENSE";
+    private static final String NOTE = "This document is digitally issued and valid as per trade regulations.";
+
+    private static final Row NUMBER_ROW = new Row("License Number:", BOLD, HELVETICA_BOLD, 12, BaseColor.BLACK, 744);
+    private static final Row FIRM_ROW = new Row("Issued To:", REGULAR, HELVETICA, 12, BaseColor.BLACK, 728);
+    private static final Row ISSUE_ROW = new Row("Issue Date:", REGULAR, HELVETICA, 12, BaseColor.BLACK, 712);
+    private static final Row EXPIRY_ROW = new Row("Expiry Date:", REGULAR, HELVETICA, 12, BaseColor.RED, 696);
+    private static final Row SIGNATURE_ROW = new Row("Signature Authority: [See file:", REGULAR, HELVETICA, 12, BaseColor.BLACK, 630);
+
+    // Objects 1-5 never change; object 6 is the content stream
+    private static final int CONTENT_OBJECT = 6;
+    private static final int[] STATIC_OFFSETS = new int[CONTENT_OBJECT];
+    private static final byte[] STATIC_OBJECTS = buildStaticObjects();
+    private static final byte[] STATIC_CONTENT = buildStaticContent();
+    private static final String STATIC_XREF = buildStaticXref();
+
+    private LicensePdfTemplate() { }
+
+    /**
+     * Whether every value fits on its line (at 7pt at the smallest); if not, render(...) would run
+     * off the page and the layout renderer should be used instead.
+     */
+    static boolean fits(License license, String exporterFirmName) {
+        return valueSize(NUMBER_ROW, license.getLicenseNumber()) >= MIN_VALUE_SIZE
+                && valueSize(FIRM_ROW, exporterFirmName) >= MIN_VALUE_SIZE
+                && valueSize(SIGNATURE_ROW, license.getSignatureUrl() + "]") >= MIN_VALUE_SIZE;
+    }
+
+    /**
+     * Writes the complete PDF for one license. Check fits(...) first.
+     */
+    static void render(License license, String exporterFirmName, OutputStream out) throws IOException {
+        PdfBuffer content = new PdfBuffer(STATIC_CONTENT.length + 512);
+        content.write(STATIC_CONTENT);
+        field(content, NUMBER_ROW, license.getLicenseNumber());
+        field(content, FIRM_ROW, exporterFirmName);
+        field(content, ISSUE_ROW, license.getIssueDate().format(DateTimeFormatter.ISO_DATE));
+        field(content, EXPIRY_ROW, license.getExpiryDate().format(DateTimeFormatter.ISO_DATE));
+        field(content, SIGNATURE_ROW, license.getSignatureUrl() + "]");
+        content.ascii("ET\n");
+
+        PdfBuffer pdf = new PdfBuffer(STATIC_OBJECTS.length + content.size() + 512);
+        pdf.write(STATIC_OBJECTS);
+        int contentOffset = pdf.size();
+        pdf.ascii(CONTENT_OBJECT + " 0 obj\n<</Length " + content.size() + ">>stream\n");
+        content.writeTo(pdf);
+        pdf.ascii("\nendstream\nendobj\n");
+
+        // Cross-reference table: fixed 20-byte entries
+        int xrefOffset = pdf.size();
+        pdf.ascii(STATIC_XREF);
+        pdf.ascii(xrefEntry(contentOffset));
+        pdf.ascii("trailer\n<</Size " + (CONTENT_OBJECT + 1) + "/Root 1 0 R>>\nstartxref\n" + xrefOffset + "\n%%EOF\n");
+
+        pdf.writeTo(out);
+    }
+
+    private static byte[] buildStaticObjects() {
+        PdfBuffer pdf = new PdfBuffer(1024);
+        pdf.ascii("%PDF-1.4\n");
+        pdf.write(new byte[]{'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'}); // Marks the file as binary
+        object(pdf, 1, "<</Type/Catalog/Pages 2 0 R>>");
+        object(pdf, 2, "<</Type/Pages/Kids[3 0 R]/Count 1>>");
+        object(pdf, 3, "<</Type/Page/Parent 2 0 R/MediaBox[0 0 " + number(PAGE_WIDTH) + " " + number(PAGE_HEIGHT) + "]"
+                + "/Resources<</Font<<" + REGULAR + " 4 0 R" + BOLD + " 5 0 R>>>>/Contents " + CONTENT_OBJECT + " 0 R>>");
+        object(pdf, 4, "<</Type/Font/Subtype/Type1/BaseFont/" + BaseFont.HELVETICA + "/Encoding/WinAnsiEncoding>>");
+        object(pdf, 5, "<</Type/Font/Subtype/Type1/BaseFont/" + BaseFont.HELVETICA_BOLD + "/Encoding/WinAnsiEncoding>>");
+        return pdf.toByteArray();
+    }
+
+    private static byte[] buildStaticContent() {
+        PdfBuffer content = new PdfBuffer(1024);
+        content.ascii("BT\n");
+        text(content, BOLD, 18, BaseColor.DARK_GRAY, TITLE, (PAGE_WIDTH - HELVETICA_BOLD.getWidthPoint(TITLE, 18)) / 2, 784);
+        for (Row row : new Row[]{NUMBER_ROW, FIRM_ROW, ISSUE_ROW, EXPIRY_ROW, SIGNATURE_ROW}) {
+            text(content, row.fontName, row.size, row.color, row.label, LEFT, row.y);
+        }
+        text(content, REGULAR, 10, BaseColor.BLACK, NOTE, LEFT, 670);
+        return content.toByteArray();
+    }
+
+    private static String buildStaticXref() {
+        StringBuilder xref = new StringBuilder("xref\n0 " + (CONTENT_OBJECT + 1) + "\n0000000000 65535 f \n");
+        for (int object = 1; object < CONTENT_OBJECT; object++) {
+            xref.append(xrefEntry(STATIC_OFFSETS[object]));
+        }
+        return xref.toString();
+    }
+
+    private static String xrefEntry(int offset) {
+        String digits = Integer.toString(offset);
+        return "0000000000".substring(digits.length()) + digits + " 00000 n \n";
+    }
+
+    private static void object(PdfBuffer pdf, int number, String dictionary) {
+        STATIC_OFFSETS[number] = pdf.size();
+        pdf.ascii(number + " 0 obj\n" + dictionary + "\nendobj\n");
+    }
+
+    private static void field(PdfBuffer content, Row row, String value) {
+        text(content, row.fontName, Math.max(MIN_VALUE_SIZE, valueSize(row, value)), row.color, value, row.valueX, row.y);
+    }
+
+    // The row's size, or the smaller size at which the value ends at the right margin
+    private static float valueSize(Row row, String value) {
+        float width = row.font.getWidthPoint(value == null ? "" : value, row.size);
+        float available = RIGHT - row.valueX;
+        return width <= available ? row.size : row.size * available / width;
+    }
+
+    // Sets colour and font, positions the text matrix, and shows the (WinAnsi-encoded, escaped) string
+    private static void text(PdfBuffer content, String fontName, float size, BaseColor color, String text, float x, float y) {
+        content.ascii(number(color.getRed() / 255f, 5) + " " + number(color.getGreen() / 255f, 5) + " "
+                + number(color.getBlue() / 255f, 5) + " rg\n");
+        content.ascii(fontName + " " + number(size) + " Tf\n");
+        content.ascii("1 0 0 1 " + number(x) + " " + number(y) + " Tm\n");
+        literal(content, PdfEncodings.convertToBytes(text == null ? "" : text, BaseFont.WINANSI));
+        content.ascii(" Tj\n");
+    }
+
+    // A PDF literal string: parentheses and backslashes are escaped, and so are line breaks (which a
+    // reader would otherwise normalise)
+    private static void literal(PdfBuffer content, byte[] bytes) {
+        content.write('(');
+        for (byte b : bytes) {
+            switch (b) {
+                case '(':
+                case ')':
+                case '\\':
+                    content.write('\\');
+                    content.write(b);
+                    break;
+                case '\r':
+                    content.ascii("\\r");
+                    break;
+                case '\n':
+                    content.ascii("\\n");
+                    break;
+                default:
+                    content.write(b);
+            }
+        }
+        content.write(')');
+    }
+
+    private static String number(float value) {
+        return number(value, 2);
+    }
+
+    // Fixed point without trailing zeros (PDF numbers take no exponent)
+    private static String number(float value, int decimals) {
+        long scale = (long) Math.pow(10, decimals);
+        long scaled = Math.round(Math.abs((double) value) * scale);
+        String whole = (value < 0 && scaled != 0 ? "-" : "") + scaled / scale;
+        if (scaled % scale == 0) {
+            return whole;
+        }
+        String fraction = Long.toString(scaled % scale + scale).substring(1); // Zero-padded
+        int end = fraction.length();
+        while (fraction.charAt(end - 1) == '0') {
+            end--;
+        }
+        return whole + "." + fraction.substring(0, end);
+    }
+
+    private static BaseFont baseFont(String name) {
+        try {
+            // Standard Type 1 fonts are not embedded; the BaseFont only supplies read-only metrics
+            return BaseFont.createFont(name, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("Could not load font " + name, e);
+        }
+    }
+
+    /** Unsynchronized byte buffer that knows its own length (used for the PDF byte offsets). */
+    private static final class PdfBuffer extends ByteArrayOutputStream {
+        PdfBuffer(int capacity) {
+            super(capacity);
+        }
+
+        void ascii(String s) {
+            write(s.getBytes(StandardCharsets.ISO_8859_1), 0, s.length());
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b) {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+
+        private void ensure(int extra) {
+            if (count + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.LicenseDAO;
+import com.foreign_trade.model.License;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks many license numbers in one go, as customs brokers send them: the whole list is resolved
+ * with LicenseDAO.getLicensesByNumber() (a few chunked IN queries instead of one round trip per
+ * number) and every license is judged against the same reference date.
+ * Used by the chatbot ("check these licenses ...") and for CSV files.
+ */
+public class LicenseValidityService {
+
+    public enum Status { VALID, EXPIRED, UNKNOWN }
+
+    /** The verdict for one license number. */
+    public static class Result {
+        private final String licenseNumber;
+        private final Status status;
+        private final License license;
+
+        Result(String licenseNumber, Status status, License license) {
+            this.licenseNumber = licenseNumber;
+            this.status = status;
+            this.license = license;
+        }
+
+        public String getLicenseNumber() { return licenseNumber; }
+        public Status getStatus() { return status; }
+
+        /** The license record, or null if the number is unknown. */
+        public License getLicense() { return license; }
+    }
+
+    private final LicenseDAO licenseDAO = new LicenseDAO();
+
+    /**
+     * Checks every number (trimmed and uppercased; blanks and repeats are dropped) against the date.
+     * Valid means what License.isValid() means on that date: the license expires after it.
+     * @return One result per distinct number, in the order given.
+     */
+    public List<Result> checkAll(Collection<String> licenseNumbers, LocalDate asOf) throws SQLException {
+        LinkedHashSet<String> numbers = new LinkedHashSet<>();
+        for (String number : licenseNumbers) {
+            if (number != null && !number.trim().isEmpty()) {
+                numbers.add(number.trim().toUpperCase());
+            }
+        }
+
+        Map<String, License> found = licenseDAO.getLicensesByNumber(numbers);
+        List<Result> results = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            License license = found.get(number);
+            if (license == null) {
+                results.add(new Result(number, Status.UNKNOWN, null));
+            } else {
+                results.add(new Result(number, asOf.isBefore(license.getExpiryDate()) ? Status.VALID : Status.EXPIRED, license));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks the license numbers in the first column of a CSV file and writes one line per number to
+     * another CSV file (license_number,status,expiry_date,exporter_id). A first line without any digit
+     * is taken as a header and skipped.
+     * @return The results, in file order.
+     */
+    public List<Result> checkCsv(Path input, Path output, LocalDate asOf) throws IOException, SQLException {
+        List<String> numbers = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                String field = firstField(line);
+                if (first && !field.chars().anyMatch(Character::isDigit)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                numbers.add(field);
+            }
+        }
+
+        List<Result> results = checkAll(numbers, asOf);
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("license_number,status,expiry_date,exporter_id");
+            writer.newLine();
+            for (Result result : results) {
+                License license = result.getLicense();
+                writer.write(result.getLicenseNumber() + "," + result.getStatus() + ","
+                        + (license == null ? "," : license.getExpiryDate() + "," + license.getExporterId()));
+                writer.newLine();
+            }
+        }
+        return results;
+    }
+
+    /** e.g. "12 licenses checked as of 2025-06-01: 9 valid, 2 expired, 1 unknown." */
+    public static String summarize(List<Result> results, LocalDate asOf) {
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        for (Result result : results) {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+        }
+        return results.size() + " license" + (results.size() == 1 ? "" : "s") + " checked as of " + asOf + ": "
+                + counts.get(Status.VALID) + " valid, " + counts.get(Status.EXPIRED) + " expired, "
+                + counts.get(Status.UNKNOWN) + " unknown.";
+    }
+
+    // First comma- or semicolon-separated field, without surrounding quotes and blanks
+    private static String firstField(String line) {
+        int end = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == ';') {
+                end = i;
+                break;
+            }
+        }
+        String field = line.substring(0, end).trim();
+        if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+            field = field.substring(1, field.length() - 1).trim();
+        }
+        return field;
+    }
+}
@@ -0,0 +1,178 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.InvoiceDAO;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks PENDING invoices as OVERDUE once they are older than the payment window
+ * (-Dinvoice.dueDays, default 30 days after issue), in the background every
+ * -Dinvoice.sweep.intervalMinutes (default 60).
+ * The work is done by the database: each step is one index-backed UPDATE of at most
+ * -Dinvoice.sweep.batchSize invoices (default 1000), committed on its own, with a short pause
+ * (-Dinvoice.sweep.pauseMillis, default 50) before the next, so the sweep never holds many row locks
+ * and payments recorded meanwhile are not kept waiting. The counts and duration of recent runs are kept.
+ */
+public class OverdueInvoiceSweeper {
+
+    private static final int HISTORY_SIZE = 24;
+    private static OverdueInvoiceSweeper defaultSweeper;
+
+    /** Counts and duration of one sweep. */
+    public static final class Run {
+        private final LocalDateTime startedAt;
+        private final LocalDate issuedBefore;
+        private final int marked;
+        private final int batches;
+        private final long elapsedMillis;
+
+        Run(LocalDateTime startedAt, LocalDate issuedBefore, int marked, int batches, long elapsedMillis) {
+            this.startedAt = startedAt;
+            this.issuedBefore = issuedBefore;
+            this.marked = marked;
+            this.batches = batches;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDate getIssuedBefore() { return issuedBefore; }
+        public int getMarked() { return marked; }
+        public int getBatches() { return batches; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "Overdue sweep at " + startedAt + ": " + marked + " invoice(s) issued before " + issuedBefore
+                    + " marked OVERDUE in " + batches + " batch(es), " + elapsedMillis + " ms";
+        }
+    }
+
+    private final InvoiceDAO invoiceDAO;
+    private final int dueDays;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long intervalMinutes;
+
+    // Guarded by this
+    private final ArrayDeque<Run> history = new ArrayDeque<>();
+    private long totalMarked;
+    private ScheduledExecutorService timer;
+
+    public OverdueInvoiceSweeper(InvoiceDAO invoiceDAO, int dueDays, int batchSize, long pauseMillis, long intervalMinutes) {
+        if (dueDays < 0 || batchSize < 1 || pauseMillis < 0 || intervalMinutes < 1) {
+            throw new IllegalArgumentException("Invalid sweep settings: dueDays=" + dueDays + ", batchSize=" + batchSize
+                    + ", pauseMillis=" + pauseMillis + ", intervalMinutes=" + intervalMinutes);
+        }
+        this.invoiceDAO = invoiceDAO;
+        this.dueDays = dueDays;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    /** The application-wide sweeper, created on first use from the system properties. */
+    public static synchronized OverdueInvoiceSweeper getDefault() {
+        if (defaultSweeper == null) {
+            defaultSweeper = new OverdueInvoiceSweeper(new InvoiceDAO(),
+                    Integer.getInteger("invoice.dueDays", 30),
+                    Integer.getInteger("invoice.sweep.batchSize", 1000),
+                    Long.getLong("invoice.sweep.pauseMillis", 50L),
+                    Long.getLong("invoice.sweep.intervalMinutes", 60L));
+        }
+        return defaultSweeper;
+    }
+
+    /** Starts sweeping in the background; the first sweep runs at once. */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "overdue-invoice-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::sweepQuietly, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Marks every PENDING invoice issued more than dueDays before the given day as OVERDUE,
+     * batch by batch, until a batch comes back short.
+     */
+    public Run sweep(LocalDate today) throws SQLException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        LocalDate issuedBefore = today.minusDays(dueDays);
+        int marked = 0;
+        int batches = 0;
+
+        int count;
+        do {
+            count = invoiceDAO.markOverdue(issuedBefore, batchSize);
+            marked += count;
+            batches++;
+            if (count == batchSize && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Stopping: the next sweep picks up the rest
+                    break;
+                }
+            }
+        } while (count == batchSize);
+
+        Run run = new Run(startedAt, issuedBefore, marked, batches, System.currentTimeMillis() - start);
+        synchronized (this) {
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(run);
+            totalMarked += marked;
+        }
+        return run;
+    }
+
+    /** The most recent runs, oldest first (at most 24). */
+    public synchronized List<Run> getRecentRuns() {
+        return new ArrayList<>(history);
+    }
+
+    /** Invoices marked OVERDUE since this sweeper was created. */
+    public synchronized long getTotalMarked() {
+        return totalMarked;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep(LocalDate.now()); // Recorded in getRecentRuns()
+        } catch (SQLException e) {
+            System.err.println("Overdue invoice sweep failed (retrying at the next sweep): " + e.getMessage());
+        }
+    }
+
+    /** Stops the background sweeps. */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Stops the application-wide sweeper, if it was ever used. Called when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (defaultSweeper != null) {
+            defaultSweeper.stop();
+            defaultSweeper = null;
+        }
+    }
+}
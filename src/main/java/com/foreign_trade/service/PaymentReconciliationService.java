@@ -0,0 +1,79 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.InvoiceDAO;
+import com.foreign_trade.model.Invoice.PaymentStatus;
+import com.foreign_trade.model.PaymentRecord;
+import com.foreign_trade.util.ReconciliationStats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports bank statements: marks the invoices they list as paid through
+ * InvoiceDAO.reconcilePayments() (chunked, batched transactions) and writes one outcome per line.
+ */
+public class PaymentReconciliationService {
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+
+    /**
+     * Reads a statement CSV (shipment_id,status,payment_date; the date may be empty for non-PAID lines;
+     * a first line without any digit is taken as a header), applies it, and writes
+     * shipment_id,status,payment_date,outcome for every line to the output file.
+     * The whole file is validated before anything is written to the database.
+     */
+    public ReconciliationStats reconcileCsv(Path input, Path output) throws IOException, SQLException {
+        List<PaymentRecord> records = readStatement(input);
+        ReconciliationStats stats = invoiceDAO.reconcilePayments(records);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("shipment_id,status,payment_date,outcome");
+            writer.newLine();
+            for (PaymentRecord record : records) {
+                writer.write(record.getShipmentId() + "," + record.getStatus() + ","
+                        + (record.getPaymentDate() != null ? record.getPaymentDate() : "") + "," + record.getOutcome());
+                writer.newLine();
+            }
+        }
+        return stats;
+    }
+
+    private static List<PaymentRecord> readStatement(Path input) throws IOException {
+        List<PaymentRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || (lineNumber == 1 && !line.chars().anyMatch(Character::isDigit))) {
+                    continue;
+                }
+                String[] fields = line.split("[,;]", -1);
+                try {
+                    PaymentStatus status = fields.length > 1 && !fields[1].trim().isEmpty()
+                            ? PaymentStatus.valueOf(fields[1].trim().toUpperCase())
+                            : PaymentStatus.PAID;
+                    LocalDate paymentDate = fields.length > 2 && !fields[2].trim().isEmpty()
+                            ? LocalDate.parse(fields[2].trim())
+                            : null;
+                    if (status == PaymentStatus.PAID && paymentDate == null) {
+                        throw new IllegalArgumentException("a PAID line needs a payment date");
+                    }
+                    records.add(new PaymentRecord(Integer.parseInt(fields[0].trim()), status, paymentDate));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IOException("Line " + lineNumber + " of " + input + " is not a valid payment (" + e.getMessage() + "): " + line);
+                }
+            }
+        }
+        return records;
+    }
+}
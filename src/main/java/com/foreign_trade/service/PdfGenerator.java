@@ -12,14 +12,55 @@ import com.itextpdf.text.FontFactory;
 import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.pdf.PdfWriter;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Renders license PDFs.
+ * Two modes produce the same fields:
+ * - Template mode (default): the static parts (title, labels, boilerplate, PDF objects) are assembled
+ *   once by LicensePdfTemplate, and each license only stamps its variable fields onto that template.
+ *   Long values are set smaller to stay inside the margin; a license whose values do not fit even
+ *   then is rendered in layout mode, which wraps them.
+ * - Layout mode: the whole document is built with Paragraphs for every license (the original behaviour).
+ * The mode is chosen per instance; the default comes from -Dpdf.templateMode (true unless set to false).
+ * Fonts and the template are shared, immutable once built, and safe to use from several threads.
+ */
 public class PdfGenerator {
 
     private static final String FILE_DIR = "generated_licenses/";
 
+    // Channel writes are coalesced into large sequential writes
+    private static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+
+    /** Bumped whenever the template's static content or field positions change (see LicensePdfTemplate). */
+    public static final int TEMPLATE_VERSION = 2;
+
+    // --- Shared font cache (built once; never mutated afterwards) ---
+    private static final Font TITLE_FONT = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD, BaseColor.DARK_GRAY);
+    private static final Font NUMBER_FONT = FontFactory.getFont(FontFactory.HELVETICA, 12, Font.BOLD);
+    private static final Font EXPIRY_FONT = FontFactory.getFont(FontFactory.HELVETICA, 12, BaseColor.RED);
+    private static final Font NOTE_FONT = FontFactory.getFont(FontFactory.HELVETICA, 10);
+
+    private final boolean templateMode;
+
+    public PdfGenerator() {
+        this(!"false".equalsIgnoreCase(System.getProperty("pdf.templateMode")));
+    }
+
+    public PdfGenerator(boolean templateMode) {
+        this.templateMode = templateMode;
+    }
+
+    public boolean isTemplateMode() {
+        return templateMode;
+    }
+
     /**
      * Generates a PDF document for the issued license.
      * @param license The issued License object.
@@ -33,36 +74,75 @@ public class PdfGenerator {
         new java.io.File(FILE_DIR).mkdirs();
 
         // 2. Define the output file path
-        String fileName = FILE_DIR + license.getLicenseNumber() + "_" + license.getExporterId() + ".pdf";
+        String fileName = FILE_DIR + fileNameOf(license);
+
+        // 3. Render into the file
+        OutputStream out = new FileOutputStream(fileName);
+        try {
+            writeLicensePdf(license, exporterFirmName, out);
+        } finally {
+            out.close();
+        }
+
+        return fileName;
+    }
+
+    /**
+     * Renders the license PDF into the given stream (left open for the caller to close).
+     */
+    public void writeLicensePdf(License license, String exporterFirmName, OutputStream out)
+            throws DocumentException, IOException {
+        if (templateMode && LicensePdfTemplate.fits(license, exporterFirmName)) {
+            LicensePdfTemplate.render(license, exporterFirmName, out);
+        } else {
+            layoutDocument(license, exporterFirmName, out);
+        }
+    }
+
+    /**
+     * Renders the license PDF into the given channel (left open for the caller to close).
+     */
+    public void writeLicensePdf(License license, String exporterFirmName, WritableByteChannel channel)
+            throws DocumentException, IOException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), CHANNEL_BUFFER_SIZE);
+        writeLicensePdf(license, exporterFirmName, out);
+        out.flush(); // Not close(): that would close the caller's channel
+    }
+
+    /** File name of the license's PDF (also used for its entry in audit archives). */
+    static String fileNameOf(License license) {
+        return license.getLicenseNumber() + "_" + license.getExporterId() + ".pdf";
+    }
+
+    // --- Layout mode: the full document is built for every license ---
+    private void layoutDocument(License license, String exporterFirmName, OutputStream out) throws DocumentException {
         Document document = new Document();
 
-        // 3. Create the PDF Writer instance
-        PdfWriter.getInstance(document, new FileOutputStream(fileName));
+        // Create the PDF Writer instance (the stream is closed by our caller, not by the document)
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
         document.open();
 
         // --- Document Content ---
 
-        // Title (Line 46 fixed with explicit import resolution)
-        Font titleFont = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD, BaseColor.DARK_GRAY);
-        Paragraph title = new Paragraph("FOREIGN TRADE EXPORT LICENSE", titleFont);
+        // Title
+        Paragraph title = new Paragraph("FOREIGN TRADE EXPORT LICENSE", TITLE_FONT);
         title.setAlignment(Element.ALIGN_CENTER);
         document.add(title);
         document.add(Chunk.NEWLINE);
 
         // License Details
-        document.add(new Paragraph("License Number: " + license.getLicenseNumber(), FontFactory.getFont(FontFactory.HELVETICA, 12, Font.BOLD)));
+        document.add(new Paragraph("License Number: " + license.getLicenseNumber(), NUMBER_FONT));
         document.add(new Paragraph("Issued To: " + exporterFirmName));
         document.add(new Paragraph("Issue Date: " + license.getIssueDate().format(DateTimeFormatter.ISO_DATE)));
-        document.add(new Paragraph("Expiry Date: " + license.getExpiryDate().format(DateTimeFormatter.ISO_DATE), FontFactory.getFont(FontFactory.HELVETICA, 12, BaseColor.RED)));
+        document.add(new Paragraph("Expiry Date: " + license.getExpiryDate().format(DateTimeFormatter.ISO_DATE), EXPIRY_FONT));
         document.add(Chunk.NEWLINE);
 
         // Signature Placeholder
-        document.add(new Paragraph("This document is digitally issued and valid as per trade regulations.", FontFactory.getFont(FontFactory.HELVETICA, 10)));
+        document.add(new Paragraph("This document is digitally issued and valid as per trade regulations.", NOTE_FONT));
         document.add(new Paragraph("\n\nSignature Authority: [See file: " + license.getSignatureUrl() + "]"));
 
         // --- Close Document ---
         document.close();
-
-        return fileName;
     }
 }
@@ -0,0 +1,288 @@
+package com.foreign_trade.service;
+
+import com.foreign_trade.dao.LicenseDAO;
+import com.foreign_trade.model.License;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends renewal reminders in the background at fixed horizons before each license expires
+ * (-Dreminder.horizons, default 30,7,1 days), without querying the License table on every check.
+ * The licenses are read once when the scheduler starts; every (license, horizon) pair becomes an entry
+ * in a priority queue ordered by the day it falls due. Licenses inserted later through LicenseDAO are
+ * handed over without taking the scheduler's lock, so issuing a license never waits for a check, and
+ * are queued at the next check. Every -Dreminder.checkMinutes (default 60) the due entries are
+ * taken off the head of the queue, so a check costs nothing when no reminder is due.
+ * Reminders are appended to a local outbox file (-Dreminder.outbox, default reminder_outbox.txt), one
+ * tab-separated line each, as a stand-in for e-mail. The outbox is also the record of what was sent:
+ * it is read back on start so a restart does not repeat reminders. After downtime, only the most
+ * urgent missed horizon is sent.
+ */
+public class RenewalReminderScheduler {
+
+    private static RenewalReminderScheduler defaultScheduler;
+
+    /** One horizon of one license. */
+    private static final class Reminder {
+        final LocalDate due;
+        final int horizon;
+        final License license;
+
+        Reminder(LocalDate due, int horizon, License license) {
+            this.due = due;
+            this.horizon = horizon;
+            this.license = license;
+        }
+    }
+
+    /** The most urgent horizon already sent for a license; kept until the license expires. */
+    private static final class Sent {
+        final int horizon;
+        final LocalDate expiryDate;
+
+        Sent(int horizon, LocalDate expiryDate) {
+            this.horizon = horizon;
+            this.expiryDate = expiryDate;
+        }
+    }
+
+    private final LicenseDAO licenseDAO;
+    private final int[] horizons;        // Ascending: most urgent first
+    private final Path outbox;
+    private final long checkMinutes;
+
+    // Committed by LicenseDAO but not yet queued; drained by runDue()
+    private final Queue<License> inserted = new ConcurrentLinkedQueue<>();
+
+    // Guarded by this
+    private final PriorityQueue<Reminder> pending = new PriorityQueue<>(Comparator.comparing((Reminder r) -> r.due));
+    private final Map<String, Sent> sent = new HashMap<>();
+    private boolean loaded;
+    private boolean listening;
+    private long sentCount;
+    private ScheduledExecutorService timer;
+
+    public RenewalReminderScheduler(LicenseDAO licenseDAO, int[] horizons, Path outbox, long checkMinutes) {
+        if (horizons.length == 0 || checkMinutes < 1) {
+            throw new IllegalArgumentException("At least one horizon and a positive check interval are required.");
+        }
+        this.licenseDAO = licenseDAO;
+        this.horizons = horizons.clone();
+        Arrays.sort(this.horizons);
+        this.outbox = outbox;
+        this.checkMinutes = checkMinutes;
+    }
+
+    /** The application-wide scheduler, created on first use from the system properties. */
+    public static synchronized RenewalReminderScheduler getDefault() {
+        if (defaultScheduler == null) {
+            int[] horizons = Arrays.stream(System.getProperty("reminder.horizons", "30,7,1").split(","))
+                    .mapToInt(horizon -> Integer.parseInt(horizon.trim()))
+                    .toArray();
+            defaultScheduler = new RenewalReminderScheduler(new LicenseDAO(), horizons,
+                    Paths.get(System.getProperty("reminder.outbox", "reminder_outbox.txt")),
+                    Long.getLong("reminder.checkMinutes", 60L));
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Starts checking in the background; the first check (which also loads the licenses) runs at once.
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        if (!listening) {
+            LicenseDAO.addInsertListener(licenses -> licenses.forEach(inserted::add));
+            listening = true;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "renewal-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::checkQuietly, 0, checkMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Loads the licenses if that has not happened yet, queues the ones inserted since the last check,
+     * then sends every reminder due on the given day.
+     * @return The number of reminders written to the outbox.
+     */
+    public synchronized int runDue(LocalDate today) throws SQLException, IOException {
+        if (!loaded) {
+            load(today);
+        }
+        License license;
+        while ((license = inserted.poll()) != null) {
+            schedule(license, today);
+        }
+
+        List<Reminder> due = new ArrayList<>();
+        while (!pending.isEmpty() && !pending.peek().due.isAfter(today)) {
+            Reminder reminder = pending.poll();
+            if (isWanted(reminder, today)) {
+                due.add(reminder);
+                sent.put(reminder.license.getLicenseNumber(), new Sent(reminder.horizon, reminder.license.getExpiryDate()));
+            }
+        }
+        sent.values().removeIf(mark -> mark.expiryDate.isBefore(today));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            writeToOutbox(due, today);
+        } catch (IOException e) {
+            // Put everything back so the next check tries again
+            for (Reminder reminder : due) {
+                sent.remove(reminder.license.getLicenseNumber());
+                pending.add(reminder);
+            }
+            throw e;
+        }
+        sentCount += due.size();
+        return due.size();
+    }
+
+    /** Reminders waiting for their day. */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Reminders written to the outbox since this scheduler was created. */
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    public Path getOutbox() {
+        return outbox;
+    }
+
+    // Queues every horizon of a license that has not expired yet
+    private void schedule(License license, LocalDate today) {
+        if (license.getExpiryDate().isBefore(today)) {
+            return;
+        }
+        for (int horizon : horizons) {
+            pending.add(new Reminder(license.getExpiryDate().minusDays(horizon), horizon, license));
+        }
+    }
+
+    // Only the most urgent horizon that applies is sent, and never one already sent (or a less urgent one)
+    private boolean isWanted(Reminder reminder, LocalDate today) {
+        long daysLeft = ChronoUnit.DAYS.between(today, reminder.license.getExpiryDate());
+        if (daysLeft < 0) {
+            return false;
+        }
+        for (int horizon : horizons) {
+            if (horizon >= daysLeft) {
+                if (horizon != reminder.horizon) {
+                    return false; // A more urgent horizon is due too; it is sent instead
+                }
+                break;
+            }
+        }
+        Sent previous = sent.get(reminder.license.getLicenseNumber());
+        return previous == null || previous.horizon > reminder.horizon;
+    }
+
+    private void load(LocalDate today) throws SQLException, IOException {
+        // What was already sent before the last shutdown
+        if (Files.exists(outbox)) {
+            try (BufferedReader reader = Files.newBufferedReader(outbox, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", 6);
+                    if (fields.length < 6) {
+                        continue; // Torn last line
+                    }
+                    try {
+                        int horizon = Integer.parseInt(fields[1]);
+                        LocalDate expiryDate = LocalDate.parse(fields[4]);
+                        Sent previous = sent.get(fields[2]);
+                        if (!expiryDate.isBefore(today) && (previous == null || previous.horizon > horizon)) {
+                            sent.put(fields[2], new Sent(horizon, expiryDate));
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.println("Skipping unreadable reminder outbox line: " + line);
+                    }
+                }
+            }
+        }
+        // Licenses inserted while this runs are also handed to the insert listener and queued after it;
+        // the sent map keeps the duplicates from producing a second reminder
+        licenseDAO.forEachLicense(license -> schedule(license, today));
+        loaded = true;
+    }
+
+    private void writeToOutbox(List<Reminder> due, LocalDate today) throws IOException {
+        Path parent = outbox.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString();
+        try (BufferedWriter writer = Files.newBufferedWriter(outbox, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Reminder reminder : due) {
+                License license = reminder.license;
+                long daysLeft = ChronoUnit.DAYS.between(today, license.getExpiryDate());
+                writer.write(sentAt + "\t" + reminder.horizon + "\t" + license.getLicenseNumber() + "\t"
+                        + license.getExporterId() + "\t" + license.getExpiryDate() + "\t"
+                        + String.format("REMINDER: License %s (Exporter ID: %d) will expire in %d days (%s). Please renew immediately.",
+                        license.getLicenseNumber(), license.getExporterId(), daysLeft, license.getExpiryDate()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private void checkQuietly() {
+        try {
+            runDue(LocalDate.now());
+        } catch (SQLException | IOException e) {
+            System.err.println("Renewal reminder check failed (retrying at the next check): " + e.getMessage());
+        }
+    }
+
+    /** Stops the background checks. Reminders still queued are rebuilt from the table on the next start. */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Stops the application-wide scheduler, if it was ever used. Called when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (defaultScheduler != null) {
+            defaultScheduler.stop();
+            defaultScheduler = null;
+        }
+    }
+}
@@ -1,13 +1,30 @@
 package com.foreign_trade.service;
 
+import com.foreign_trade.dao.DataAccessException;
+import com.foreign_trade.dao.ShipmentColumns;
 import com.foreign_trade.dao.ShipmentDAO;
+import com.foreign_trade.dao.ShipmentSummaryDAO;
 import com.foreign_trade.model.Shipment;
+import com.foreign_trade.model.Shipment.ShipmentStatus;
+import com.foreign_trade.model.ShipmentLogEntry;
+import com.foreign_trade.model.ShipmentSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ShipmentService {
 
     private final ShipmentDAO shipmentDAO = new ShipmentDAO();
+    private final ShipmentSummaryDAO summaryDAO = new ShipmentSummaryDAO();
+
+    /** Sort orders supported by the keyset-paginated shipment log. */
+    public enum PageOrder {
+        BY_ID, BY_EXPORT_DATE
+    }
 
     // The custom exception class remains defined in its own file: InsuranceException.java
 
@@ -18,6 +35,52 @@ public class ShipmentService {
         return shipmentDAO.getAllShipments();
     }
 
+    /**
+     * Streams all shipment records from a server-side cursor (for reports and exports).
+     * The caller must close the stream (try-with-resources) to release the DB connection.
+     */
+    public Stream<Shipment> streamShipmentRecords() throws SQLException {
+        return shipmentDAO.streamAllShipments();
+    }
+
+    /**
+     * Writes every shipment as CSV to the given writer, one row at a time, so memory use
+     * does not grow with the size of the shipment history.
+     * @return The number of shipment rows written (excluding the header).
+     */
+    public long exportShipmentsCsv(Writer out) throws SQLException, IOException {
+        out.write("shipment_id,license_id,product_name,origin,destination,quantity,total_cost,export_date,status,has_insurance\n");
+        try {
+            return shipmentDAO.forEachShipment(shipment -> {
+                try {
+                    out.write(toCsvRow(shipment));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DataAccessException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String toCsvRow(Shipment s) {
+        return s.getShipmentId() + "," + s.getLicenseId() + "," + csv(s.getProductName()) + "," + csv(s.getOrigin()) + ","
+                + csv(s.getDestination()) + "," + s.getQuantity() + "," + s.getTotalCost() + ","
+                + (s.getExportDate() != null ? s.getExportDate() : "") + "," + s.getStatus() + "," + s.isHasInsurance() + "\n";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
     /**
      * Retrieves shipment records filtered by license ID. (Required for UI filtering).
      */
@@ -25,6 +88,53 @@ public class ShipmentService {
         return shipmentDAO.getShipmentsByLicenseId(licenseId);
     }
 
+    /**
+     * Retrieves one keyset page of a license's shipments, each with its invoice amount and payment state,
+     * fetched in one query. (Used by the paged Shipment Log View).
+     * @param after The last shipment of the previous page, or null for the first page.
+     * @param pageSize Maximum number of rows to return.
+     */
+    public List<ShipmentLogEntry> getShipmentLogPage(int licenseId, PageOrder order, Shipment after, int pageSize) throws SQLException {
+        if (order == PageOrder.BY_EXPORT_DATE) {
+            return shipmentDAO.getShipmentLogPageByExportDate(licenseId,
+                    after != null ? after.getExportDate() : null,
+                    after != null ? after.getShipmentId() : 0,
+                    pageSize);
+        }
+        return shipmentDAO.getShipmentLogPageById(licenseId, after != null ? after.getShipmentId() : 0, pageSize);
+    }
+
+    /**
+     * Shipment count, quantity, cost and counts per status of a license, read from memory. (Used by dashboards).
+     */
+    public ShipmentSummary getLicenseSummary(int licenseId) throws SQLException {
+        return summaryDAO.getSummary(licenseId);
+    }
+
+    /**
+     * Moves a shipment to another status; the license totals follow in the same transaction.
+     * @return false if the shipment does not exist.
+     */
+    public boolean updateShipmentStatus(int shipmentId, ShipmentStatus newStatus) throws SQLException {
+        return shipmentDAO.updateShipmentStatus(shipmentId, newStatus);
+    }
+
+    /**
+     * Recomputes every license's totals from the shipment table.
+     * @return The number of licenses with shipments.
+     */
+    public int rebuildLicenseSummaries() throws SQLException {
+        return summaryDAO.rebuild();
+    }
+
+    /**
+     * Loads a columnar snapshot of all shipments for analytics (filter, group-by, sum and count).
+     * The snapshot does not change afterwards; load a new one to see later shipments.
+     */
+    public ShipmentColumns loadAnalyticsSnapshot() throws SQLException {
+        return ShipmentColumns.load();
+    }
+
     // NOTE: logNewShipment and prepareShipment were removed, as their functionality is now
     // inside ShipmentDAO.insertAndValidateShipment.
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.foreign_trade.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns free text into search terms: lowercases, splits on anything that is not a letter or digit,
+ * drops English stop words and reduces each word to a light stem, so "license", "licenses",
+ * "licensed" and "licensing" all become "licens".
+ * The stemmer is deliberately small (plural, -ed/-ing and a few derivational suffixes, in the spirit
+ * of Porter's first steps): FAQ questions are short and over-stemming hurts more than it helps.
+ * Stateless and thread-safe.
+ */
+final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "about", "am", "an", "and", "any", "are", "as", "at", "be", "been", "but", "by", "can",
+            "could", "do", "does", "for", "from", "get", "got", "had", "has", "have", "he", "her", "his",
+            "how", "i", "if", "in", "into", "is", "it", "its", "me", "my", "of", "on", "or", "our", "please",
+            "she", "should", "so", "than", "that", "the", "their", "them", "then", "there", "these", "they",
+            "this", "to", "us", "was", "we", "were", "what", "when", "where", "which", "who", "why", "will",
+            "with", "would", "you", "your"));
+
+    // More specific suffixes first, so "ations" is tried before "s"
+    private static final String[][] SUFFIXES = {
+            {"ational", "ate"}, {"ization", "ize"}, {"fulness", "ful"}, {"iveness", "ive"},
+            {"ations", "ate"}, {"ation", "ate"}, {"ments", ""}, {"ment", ""}, {"ness", ""},
+            {"ings", ""}, {"ing", ""}, {"ies", "y"}, {"ied", "y"}, {"ers", ""}, {"er", ""},
+            {"edly", ""}, {"ly", ""}, {"al", ""}, {"ed", ""}, {"es", ""}, {"s", ""}
+    };
+
+    private TextAnalyzer() { }
+
+    /**
+     * @return The stemmed, stop-word-free terms of the text, in order (duplicates kept).
+     */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String word) {
+        if (word.length() <= 3 || Character.isDigit(word.charAt(word.length() - 1))) {
+            return word; // Short words and codes ("iec", "2025") are left alone
+        }
+        String stem = word;
+        for (String[] rule : SUFFIXES) {
+            String suffix = rule[0];
+            // Keep a stem of at least three letters, and do not strip the "s" of "-ss" words ("process")
+            if (word.endsWith(suffix) && word.length() - suffix.length() >= 3
+                    && !(suffix.equals("s") && word.endsWith("ss"))) {
+                stem = word.substring(0, word.length() - suffix.length()) + rule[1];
+                break;
+            }
+        }
+        // A final "e" is dropped so "license" and "licensed" meet at "licens"
+        if (stem.length() > 4 && stem.endsWith("e")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+}
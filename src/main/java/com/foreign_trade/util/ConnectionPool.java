@@ -0,0 +1,356 @@
+package com.foreign_trade.util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A small bounded JDBC connection pool.
+ * - At most maxSize physical connections exist at any time (callers wait up to borrowTimeoutMillis).
+ * - Idle connections above minIdle are closed after idleTimeoutMillis.
+ * - Connections that sat idle are validated with Connection.isValid() before being handed out.
+ * - Connections held longer than leakThresholdMillis are reported together with the borrowing stack trace.
+ * Callers use the returned Connection normally; close() hands it back to the pool.
+ */
+public class ConnectionPool implements DataSource {
+
+    // Connections used within this window are trusted without a validation round trip.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledEntry, Lease> active = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    // --- Statistics ---
+    private final AtomicLong totalBorrows = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsEvicted = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, long leakThresholdMillis) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: maxSize=" + maxSize + ", minIdle=" + minIdle);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis > 0 ? leakThresholdMillis : idleTimeoutMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // --- Borrowing ---
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis
+                        + "ms waiting for a database connection (pool size " + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdleEntry();
+            if (entry == null) {
+                entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                connectionsCreated.incrementAndGet();
+            }
+            recordWait(System.nanoTime() - start);
+
+            Lease lease = new Lease(leakThresholdMillis > 0 ? new Exception("Connection borrowed here") : null);
+            active.put(entry, lease);
+            return entry.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Pops the most recently used idle connection, discarding any that fail validation. */
+    private PooledEntry takeValidIdleEntry() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.nanoTime() - entry.lastReturnedNanos < VALIDATION_BYPASS_NANOS || isAlive(entry.raw)) {
+                return entry;
+            }
+            closeQuietly(entry);
+            connectionsEvicted.incrementAndGet();
+        }
+        return null;
+    }
+
+    private boolean isAlive(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalBorrows.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // --- Returning ---
+
+    private void release(PooledEntry entry) {
+        active.remove(entry);
+        boolean reusable = !shutdown;
+        try {
+            if (reusable && !entry.raw.isClosed()) {
+                // Undo any transaction state the borrower left behind
+                if (!entry.raw.getAutoCommit()) {
+                    entry.raw.rollback();
+                    entry.raw.setAutoCommit(true);
+                }
+            } else {
+                reusable = false;
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            entry.lastReturnedNanos = System.nanoTime();
+            idle.offerFirst(entry);
+        } else {
+            closeQuietly(entry);
+        }
+        permits.release();
+    }
+
+    // --- Housekeeping (idle eviction and leak detection) ---
+
+    private void houseKeep() {
+        try {
+            long now = System.nanoTime();
+            long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+            // Oldest idle connections sit at the tail of the deque
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastReturnedNanos > idleTimeoutNanos && idle.remove(entry)) {
+                    closeQuietly(entry);
+                    connectionsEvicted.incrementAndGet();
+                }
+            }
+
+            if (leakThresholdMillis > 0) {
+                long leakNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+                for (Lease lease : active.values()) {
+                    if (!lease.reported && now - lease.borrowedNanos > leakNanos) {
+                        lease.reported = true;
+                        leaksDetected.incrementAndGet();
+                        System.err.println("Possible connection leak: connection held for more than "
+                                + leakThresholdMillis + "ms.");
+                        lease.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool counters (active, idle, wait time, evictions, leaks).
+     */
+    public PoolStats getStats() {
+        return new PoolStats(
+                active.size(),
+                idle.size(),
+                maxSize,
+                permits.getQueueLength(),
+                totalBorrows.get(),
+                totalWaitNanos.get(),
+                maxWaitNanos.get(),
+                connectionsCreated.get(),
+                connectionsEvicted.get(),
+                borrowTimeouts.get(),
+                leaksDetected.get()
+        );
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Borrowed connections are closed when returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry);
+        }
+    }
+
+    private void closeQuietly(PooledEntry entry) {
+        try {
+            entry.raw.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    // --- Internal types ---
+
+    private static class Lease {
+        final long borrowedNanos = System.nanoTime();
+        final Exception borrowSite;
+        volatile boolean reported = false;
+
+        Lease(Exception borrowSite) {
+            this.borrowSite = borrowSite;
+        }
+    }
+
+    /** A physical connection owned by the pool. Each borrow hands out a fresh proxy around it. */
+    private class PooledEntry {
+        final Connection raw;
+        volatile long lastReturnedNanos = System.nanoTime();
+
+        PooledEntry(Connection raw) {
+            this.raw = raw;
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ProxyHandler(this));
+        }
+    }
+
+    /** Intercepts close() so the physical connection goes back to the pool instead of the server. */
+    private class ProxyHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned = false;
+
+        ProxyHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.raw + (returned ? ", returned" : "") + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    try {
+                        return method.invoke(entry.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    // --- Remaining DataSource methods ---
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only hands out connections for its configured user.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(int seconds) { }
+
+    @Override
+    public int getLoginTimeout() { return 0; }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
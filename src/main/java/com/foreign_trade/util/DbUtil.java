@@ -1,25 +1,58 @@
 package com.foreign_trade.util;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DbUtil {
 
     // !! IMPORTANT: REPLACE 'your_password' WITH YOUR ACTUAL MYSQL PASSWORD !!
-    private static final String URL = "jdbc:mysql://localhost:3306/foreign_trade_db";
+    // rewriteBatchedStatements lets Connector/J send a JDBC batch as multi-row INSERTs (see the DAO insertAll methods)
+    private static final String URL = "jdbc:mysql://localhost:3306/foreign_trade_db?rewriteBatchedStatements=true";
     private static final String USER = "root"; // Assuming root user for testing
     private static final String PASSWORD = "Husen@786"; // <--- REPLACE THIS LINE!
 
+    // Pool settings (override with -Ddb.pool.maxSize=... etc. on the command line)
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("db.pool.minIdle", 2);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 600_000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("db.pool.borrowTimeoutMs", 30_000L);
+    private static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("db.pool.leakThresholdMs", 60_000L);
+
+    // Created on first use so the app can start (and show errors) even when MySQL is down.
+    private static volatile ConnectionPool pool;
+
+    /**
+     * Returns the shared pooled DataSource, creating it on first use.
+     */
+    public static DataSource getDataSource() {
+        return getPool();
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DbUtil.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                            POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
     /**
-     * Establishes a connection to the MySQL database.
+     * Borrows a connection from the shared pool.
+     * The caller must close it (or call closeConnection) to hand it back.
      * @return A Connection object.
      * @throws SQLException if a database access error occurs.
      */
     public static Connection getConnection() throws SQLException {
         try {
-            // Attempt to establish the connection
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            return getPool().getConnection();
         } catch (SQLException e) {
             // Display the specific SQL error for troubleshooting
             System.err.println("\n--- DETAILED SQL CONNECTION ERROR ---");
@@ -36,7 +69,9 @@ public class DbUtil {
     }
 
     /**
-     * Closes the connection, preventing resource leaks.
+     * Returns the connection to the pool, preventing resource leaks.
+     * The pool rolls back an unfinished transaction and restores auto-commit itself, so callers
+     * should not run statements on the connection in their finally block before handing it back.
      * @param connection The Connection object to close.
      */
     public static void closeConnection(Connection connection) {
@@ -48,4 +83,21 @@ public class DbUtil {
             }
         }
     }
+
+    /**
+     * Current pool counters (active, idle, wait time, ...).
+     */
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Closes all pooled connections. Called when the application exits.
+     */
+    public static void shutdown() {
+        ConnectionPool p = pool;
+        if (p != null) {
+            p.shutdown();
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.foreign_trade.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A small thread-safe LRU cache with a per-entry time-to-live.
+ * - Holds at most maxSize entries; the least recently used entry is evicted first.
+ * - Entries older than ttlMillis are treated as misses and reloaded.
+ * - get(key, loader) is read-through: the loader runs outside the lock on a miss and its
+ *   result is cached (null results are not cached).
+ */
+public class LruCache<K, V> {
+
+    /** Loads the value for a key on a cache miss (typically a DAO query). */
+    public interface Loader<K, V, E extends Exception> {
+        V load(K key) throws E;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAtNanos;
+
+        Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public LruCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // accessOrder = true turns the LinkedHashMap into an LRU list
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null if absent or expired.
+     */
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos >= 0) {
+            map.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Read-through lookup: returns the cached value or loads, caches and returns it.
+     */
+    public <E extends Exception> V get(K key, Loader<K, V, E> loader) throws E {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.load(key); // Not under the lock: a slow query must not block other lookups
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        map.remove(key);
+    }
+
+    /** Removes every entry whose value matches (e.g. all entries for one license). */
+    public synchronized void invalidateIf(Predicate<V> predicate) {
+        Iterator<Entry<V>> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next().value)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        map.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, map.size(), maxSize, hits, misses, evictions, expirations);
+    }
+}
@@ -0,0 +1,62 @@
+package com.foreign_trade.util;
+
+/**
+ * Immutable snapshot of the connection pool counters (see ConnectionPool.getStats()).
+ */
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final int waiting;
+    private final long totalBorrows;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long connectionsCreated;
+    private final long connectionsEvicted;
+    private final long borrowTimeouts;
+    private final long leaksDetected;
+
+    public PoolStats(int active, int idle, int maxSize, int waiting, long totalBorrows, long totalWaitNanos,
+                     long maxWaitNanos, long connectionsCreated, long connectionsEvicted,
+                     long borrowTimeouts, long leaksDetected) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.waiting = waiting;
+        this.totalBorrows = totalBorrows;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsEvicted = connectionsEvicted;
+        this.borrowTimeouts = borrowTimeouts;
+        this.leaksDetected = leaksDetected;
+    }
+
+    // --- Getters ---
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getMaxSize() { return maxSize; }
+    public int getWaiting() { return waiting; }
+    public long getTotalBorrows() { return totalBorrows; }
+    public double getTotalWaitMillis() { return totalWaitNanos / 1_000_000.0; }
+    public double getMaxWaitMillis() { return maxWaitNanos / 1_000_000.0; }
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public long getConnectionsEvicted() { return connectionsEvicted; }
+    public long getBorrowTimeouts() { return borrowTimeouts; }
+    public long getLeaksDetected() { return leaksDetected; }
+
+    /** Average time a caller waited to borrow a connection. */
+    public double getAverageWaitMillis() {
+        return totalBorrows == 0 ? 0.0 : getTotalWaitMillis() / totalBorrows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "PoolStats[active=%d, idle=%d, max=%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, " +
+                        "created=%d, evicted=%d, timeouts=%d, leaks=%d]",
+                active, idle, maxSize, waiting, totalBorrows, getAverageWaitMillis(), getMaxWaitMillis(),
+                connectionsCreated, connectionsEvicted, borrowTimeouts, leaksDetected);
+    }
+}
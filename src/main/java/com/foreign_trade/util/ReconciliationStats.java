@@ -0,0 +1,45 @@
+package com.foreign_trade.util;
+
+/**
+ * Immutable summary of one payment reconciliation run (see InvoiceDAO.reconcilePayments()).
+ */
+public class ReconciliationStats {
+
+    private final long records;
+    private final long updated;
+    private final long notFound;
+    private final long alreadyPaid;
+    private final int transactions;
+    private final long elapsedNanos;
+
+    public ReconciliationStats(long records, long updated, long notFound, long alreadyPaid,
+                               int transactions, long elapsedNanos) {
+        this.records = records;
+        this.updated = updated;
+        this.notFound = notFound;
+        this.alreadyPaid = alreadyPaid;
+        this.transactions = transactions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // --- Getters ---
+    public long getRecords() { return records; }
+    public long getUpdated() { return updated; }
+    public long getNotFound() { return notFound; }
+    public long getAlreadyPaid() { return alreadyPaid; }
+    public int getTransactions() { return transactions; }
+    public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+
+    /** Records reconciled per second of wall-clock time. */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : records * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ReconciliationStats[records=%d, updated=%d, notFound=%d, alreadyPaid=%d, transactions=%d, " +
+                        "elapsed=%.1fms, rate=%.0f/s]",
+                records, updated, notFound, alreadyPaid, transactions, getElapsedMillis(), getRecordsPerSecond());
+    }
+}
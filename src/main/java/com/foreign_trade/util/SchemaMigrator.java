@@ -0,0 +1,337 @@
+package com.foreign_trade.util;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and upgrades the database schema at startup.
+ * Each migration runs once, in version order, and is recorded in the schema_version table.
+ * (MySQL DDL commits implicitly, so a migration that fails halfway must be safe to re-run.)
+ * Migrations are written to be safe on databases that were created by hand before this class
+ * existed (CREATE TABLE IF NOT EXISTS, and indexes are only added when no equivalent index exists).
+ * New schema changes are added by appending a migration to MIGRATIONS, never by editing an old one.
+ */
+public class SchemaMigrator {
+
+    /** One schema change. */
+    interface Migration {
+        int version();
+        String description();
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static final String CREATE_VERSION_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    // Serializes migrations when several desktop instances start at the same time
+    private static final String ACQUIRE_LOCK = "SELECT GET_LOCK('foreign_trade_schema_migration', 60)";
+    private static final String RELEASE_LOCK = "SELECT RELEASE_LOCK('foreign_trade_schema_migration')";
+    private static final String SELECT_VERSIONS = "SELECT version FROM schema_version";
+    private static final String INSERT_VERSION = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+    private static final String SELECT_INDEX_COLUMNS =
+            "SELECT index_name, column_name FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? ORDER BY index_name, seq_in_index";
+    private static final String SELECT_COLUMN =
+            "SELECT 1 FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        MIGRATIONS.add(sql(1, "Create core tables",
+                "CREATE TABLE IF NOT EXISTS Exporter (" +
+                        "exporter_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "firm_name VARCHAR(255) NOT NULL, " +
+                        "iec_number VARCHAR(20) NOT NULL, " +
+                        "contact_person VARCHAR(255), " +
+                        "country VARCHAR(100))",
+                "CREATE TABLE IF NOT EXISTS License (" +
+                        "license_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "exporter_id INT NOT NULL, " +
+                        "license_number VARCHAR(50) NOT NULL, " +
+                        "issue_date DATE NOT NULL, " +
+                        "expiry_date DATE NOT NULL, " +
+                        "signature_url VARCHAR(255), " +
+                        "FOREIGN KEY (exporter_id) REFERENCES Exporter(exporter_id))",
+                "CREATE TABLE IF NOT EXISTS Shipment (" +
+                        "shipment_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "license_id INT NOT NULL, " +
+                        "product_name VARCHAR(255) NOT NULL, " +
+                        "origin VARCHAR(255), " +
+                        "destinationCountry VARCHAR(100), " +
+                        "quantity DOUBLE NOT NULL, " +
+                        "totalCost DOUBLE NOT NULL, " +
+                        "exportDate DATE, " +
+                        "status VARCHAR(20) NOT NULL, " +
+                        "has_insurance BOOLEAN NOT NULL DEFAULT FALSE, " +
+                        "FOREIGN KEY (license_id) REFERENCES License(license_id))",
+                "CREATE TABLE IF NOT EXISTS Invoice (" +
+                        "invoice_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "shipment_id INT NOT NULL, " +
+                        "amount DOUBLE NOT NULL, " +
+                        "payment_date DATE, " +
+                        "payment_status VARCHAR(10) NOT NULL, " +
+                        "FOREIGN KEY (shipment_id) REFERENCES Shipment(shipment_id))",
+                "CREATE TABLE IF NOT EXISTS FAQ (" +
+                        "faq_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "question VARCHAR(500) NOT NULL, " +
+                        "answer TEXT NOT NULL)"));
+
+        MIGRATIONS.add(new Migration() {
+            public int version() { return 2; }
+            public String description() { return "Indexes for DAO lookups"; }
+            public void apply(Connection connection) throws SQLException {
+                ensureIndex(connection, "Exporter", "ux_exporter_iec", true, "iec_number");
+                ensureIndex(connection, "License", "ux_license_number", true, "license_number");
+                ensureIndex(connection, "License", "idx_license_expiry", false, "expiry_date");
+                ensureIndex(connection, "License", "idx_license_exporter", false, "exporter_id");
+                // Serves WHERE license_id = ? ORDER BY exportDate, shipment_id (the InnoDB PK suffix follows exportDate);
+                // ordering by shipment_id alone needs idx_shipment_license_id (V6). Also serves the license_id foreign key.
+                ensureIndex(connection, "Shipment", "idx_shipment_license_date", false, "license_id", "exportDate");
+                ensureIndex(connection, "Invoice", "idx_invoice_shipment", false, "shipment_id");
+            }
+        });
+
+        MIGRATIONS.add(sql(3, "License number sequence table",
+                "CREATE TABLE IF NOT EXISTS license_sequence (" +
+                        "prefix VARCHAR(10) NOT NULL, " +
+                        "seq_year INT NOT NULL, " +
+                        "next_value INT NOT NULL, " +
+                        "PRIMARY KEY (prefix, seq_year))"));
+
+        // Filled from the existing shipments; DELETE first so a re-run after a partial failure is safe
+        MIGRATIONS.add(sql(4, "Per-license shipment summary table",
+                "CREATE TABLE IF NOT EXISTS license_shipment_summary (" +
+                        "license_id INT PRIMARY KEY, " +
+                        "shipment_count INT NOT NULL DEFAULT 0, " +
+                        "total_quantity DOUBLE NOT NULL DEFAULT 0, " +
+                        "total_cost DOUBLE NOT NULL DEFAULT 0, " +
+                        "pending_count INT NOT NULL DEFAULT 0, " +
+                        "ready_to_ship_count INT NOT NULL DEFAULT 0, " +
+                        "shipped_count INT NOT NULL DEFAULT 0, " +
+                        "cleared_count INT NOT NULL DEFAULT 0, " +
+                        "cancelled_count INT NOT NULL DEFAULT 0, " +
+                        "FOREIGN KEY (license_id) REFERENCES License(license_id))",
+                "DELETE FROM license_shipment_summary",
+                "INSERT INTO license_shipment_summary (license_id, shipment_count, total_quantity, total_cost, " +
+                        "pending_count, ready_to_ship_count, shipped_count, cleared_count, cancelled_count) " +
+                        "SELECT license_id, COUNT(*), SUM(quantity), SUM(totalCost), " +
+                        "SUM(status = 'PENDING'), SUM(status = 'READY_TO_SHIP'), SUM(status = 'SHIPPED'), " +
+                        "SUM(status = 'CLEARED'), SUM(status = 'CANCELLED') " +
+                        "FROM Shipment GROUP BY license_id"));
+
+        MIGRATIONS.add(new Migration() {
+            public int version() { return 5; }
+            public String description() { return "Invoice issue date and overdue sweep index"; }
+            public void apply(Connection connection) throws SQLException {
+                ensureColumn(connection, "Invoice", "issued_at", "TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP");
+                // Existing invoices count as issued on their shipment's export date, where it is known
+                Statement statement = null;
+                try {
+                    statement = connection.createStatement();
+                    statement.executeUpdate("UPDATE Invoice i JOIN Shipment s ON s.shipment_id = i.shipment_id " +
+                            "SET i.issued_at = s.exportDate WHERE s.exportDate IS NOT NULL AND i.payment_status = 'PENDING'");
+                } finally {
+                    if (statement != null) statement.close();
+                }
+                // Serves the overdue sweep: WHERE payment_status = 'PENDING' AND issued_at < ? ORDER BY issued_at
+                ensureIndex(connection, "Invoice", "idx_invoice_status_issued", false, "payment_status", "issued_at");
+            }
+        });
+
+        MIGRATIONS.add(new Migration() {
+            public int version() { return 6; }
+            public String description() { return "Shipment index for keyset pages by ID"; }
+            public void apply(Connection connection) throws SQLException {
+                // Serves WHERE license_id = ? AND shipment_id > ? ORDER BY shipment_id LIMIT ? without a sort
+                // (in idx_shipment_license_date the PK follows exportDate, so it cannot give that order)
+                ensureIndex(connection, "Shipment", "idx_shipment_license_id", false, "license_id", "shipment_id");
+            }
+        });
+    }
+
+    private SchemaMigrator() { }
+
+    /**
+     * Applies every migration that has not run yet.
+     * @return The number of migrations applied.
+     */
+    public static int migrate() throws SQLException {
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        int applied = 0;
+
+        try {
+            connection = DbUtil.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(ACQUIRE_LOCK);
+            if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                throw new SQLException("Timed out waiting for another instance to finish schema migration.");
+            }
+            resultSet.close();
+            statement.execute(CREATE_VERSION_TABLE);
+
+            List<Integer> done = new ArrayList<>();
+            resultSet = statement.executeQuery(SELECT_VERSIONS);
+            while (resultSet.next()) {
+                done.add(resultSet.getInt("version"));
+            }
+
+            for (Migration migration : MIGRATIONS) {
+                if (done.contains(migration.version())) {
+                    continue;
+                }
+                try {
+                    migration.apply(connection);
+                } catch (SQLException e) {
+                    throw new SQLException("Schema migration V" + migration.version() + " (" + migration.description()
+                            + ") failed: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+                }
+                recordVersion(connection, migration);
+                applied++;
+            }
+        } finally {
+            // The connection goes back to the pool even if releasing the lock fails (e.g. the link dropped,
+            // which also ends the session and with it the lock)
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) {
+                    statement.execute(RELEASE_LOCK);
+                    statement.close();
+                }
+            } finally {
+                DbUtil.closeConnection(connection);
+            }
+        }
+        return applied;
+    }
+
+    private static void recordVersion(Connection connection, Migration migration) throws SQLException {
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(INSERT_VERSION);
+            statement.setInt(1, migration.version());
+            statement.setString(2, migration.description());
+            statement.executeUpdate();
+        } finally {
+            if (statement != null) statement.close();
+        }
+    }
+
+    /** A migration made of plain DDL statements. */
+    static Migration sql(int version, String description, String... statements) {
+        return new Migration() {
+            public int version() { return version; }
+            public String description() { return description; }
+            public void apply(Connection connection) throws SQLException {
+                Statement statement = null;
+                try {
+                    statement = connection.createStatement();
+                    for (String ddl : statements) {
+                        statement.execute(ddl);
+                    }
+                } finally {
+                    if (statement != null) statement.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates the index unless the table already has one starting with the same columns
+     * (MySQL has no CREATE INDEX IF NOT EXISTS, and hand-made schemas may already have it).
+     */
+    static void ensureIndex(Connection connection, String table, String indexName, boolean unique,
+                            String... columns) throws SQLException {
+        if (hasIndexOn(connection, table, columns)) {
+            return;
+        }
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.execute("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + indexName
+                    + " ON " + table + " (" + String.join(", ", columns) + ")");
+        } finally {
+            if (statement != null) statement.close();
+        }
+    }
+
+    /**
+     * Adds the column unless the table already has it (MySQL has no ADD COLUMN IF NOT EXISTS).
+     */
+    static void ensureColumn(Connection connection, String table, String column, String definition) throws SQLException {
+        PreparedStatement query = null;
+        ResultSet resultSet = null;
+        try {
+            query = connection.prepareStatement(SELECT_COLUMN);
+            query.setString(1, table);
+            query.setString(2, column);
+            resultSet = query.executeQuery();
+            if (resultSet.next()) {
+                return;
+            }
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (query != null) query.close();
+        }
+
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        } finally {
+            if (statement != null) statement.close();
+        }
+    }
+
+    private static boolean hasIndexOn(Connection connection, String table, String... columns) throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(SELECT_INDEX_COLUMNS);
+            statement.setString(1, table);
+            resultSet = statement.executeQuery();
+
+            String currentIndex = null;
+            List<String> indexColumns = new ArrayList<>();
+            while (resultSet.next()) {
+                String indexName = resultSet.getString("index_name");
+                if (!indexName.equals(currentIndex)) {
+                    if (startsWith(indexColumns, columns)) {
+                        return true;
+                    }
+                    currentIndex = indexName;
+                    indexColumns.clear();
+                }
+                indexColumns.add(resultSet.getString("column_name"));
+            }
+            return startsWith(indexColumns, columns);
+        } finally {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        }
+    }
+
+    private static boolean startsWith(List<String> indexColumns, String[] columns) {
+        if (indexColumns.size() < columns.length) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!indexColumns.get(i).equalsIgnoreCase(columns[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        try {
+            migrate();
+        } finally {
+            DbUtil.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.foreign_trade.benchmark;
+
+import com.foreign_trade.dao.ExporterDAO;
+import com.foreign_trade.model.Exporter;
+import com.foreign_trade.util.DbUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares ExporterDAO.insertExporter (one row per round trip) against ExporterDAO.insertAll (JDBC batching).
+ * Run against a scratch database: it inserts 2 x rows exporters with throw-away IEC numbers.
+ * Usage: BatchInsertBenchmark [rows] [chunkSize]
+ */
+public class BatchInsertBenchmark {
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        ExporterDAO exporterDAO = new ExporterDAO();
+
+        // IEC numbers are 10 characters; derive them from the clock so repeated runs don't collide
+        long seed = (System.currentTimeMillis() / 1000) % 100_000L * 100_000L;
+
+        List<Exporter> single = generate(rows, seed, "S");
+        long start = System.nanoTime();
+        for (Exporter exporter : single) {
+            exporterDAO.insertExporter(exporter);
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        List<Exporter> batched = generate(rows, seed + rows, "B");
+        start = System.nanoTime();
+        exporterDAO.insertAll(batched, chunkSize);
+        long batchNanos = System.nanoTime() - start;
+
+        report("single-row", rows, singleNanos);
+        report("batched (chunk " + chunkSize + ")", rows, batchNanos);
+        System.out.printf("Speed-up: %.1fx%n", (double) singleNanos / batchNanos);
+        System.out.println(DbUtil.getPoolStats());
+        DbUtil.shutdown();
+    }
+
+    private static List<Exporter> generate(int rows, long firstIec, String tag) {
+        List<Exporter> exporters = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String iec = String.format("%010d", (firstIec + i) % 10_000_000_000L);
+            exporters.add(new Exporter("Bench Firm " + tag + i, iec, "Bench Contact", "India"));
+        }
+        return exporters;
+    }
+
+    private static void report(String label, int rows, long nanos) {
+        double millis = nanos / 1_000_000.0;
+        System.out.printf("%-24s %6d rows in %9.1f ms (%8.0f rows/s)%n", label, rows, millis, rows / (millis / 1000.0));
+    }
+}
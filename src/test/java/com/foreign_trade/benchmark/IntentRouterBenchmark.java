@@ -0,0 +1,141 @@
+package com.foreign_trade.benchmark;
+
+import com.foreign_trade.service.IntentRouter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-message cost of IntentRouter against the previous controller logic (String.contains chain on
+ * the lowercased input, plus Pattern.compile and toUpperCase on every message). Also checks that
+ * both pick the same intent and license number for every sample, and (before timing anything) that the
+ * router's hand-written license-number scanner finds exactly what Pattern finds on random inputs; a
+ * difference stops the run. No database is needed.
+ * Usage: IntentRouterBenchmark [messages] [scannerInputs]
+ */
+public class IntentRouterBenchmark {
+
+    private static final String[] SAMPLES = {
+            "Is license IND-2025-10452 still valid?",
+            "what is the status of gen-2024-123456 please",
+            "Show me the expiring licenses",
+            "any reminders for this month?",
+            "How do I renew my export license before it runs out and what documents do I need to attach?",
+            "What is an IEC number?",
+            "check validity of ABCDE-2025-10001 and AB-2025-99 for me",
+            "Which shipments need marine insurance when exporting to the European Union?"
+    };
+
+    // The scanner's specification: case-insensitive for ASCII letters only. The old toUpperCase() path
+    // also read a few non-ASCII letters as A-Z (e.g. the dotless i); those are not license numbers.
+    private static final Pattern LICENSE_NUMBER = Pattern.compile("[A-Z]{2,4}-\\d{4}-\\d{4,6}", Pattern.CASE_INSENSITIVE);
+
+    // Random scanner inputs are built from these: letters, digits and separators that make license
+    // numbers and near misses of every part of one
+    private static final String LETTERS = "AbIzN\u0131";
+    private static final String SEPARATORS = "---- x";
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int scannerInputs = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        IntentRouter router = IntentRouter.getDefault();
+
+        checkScanner(router, scannerInputs);
+
+        for (String sample : SAMPLES) {
+            IntentRouter.Route route = router.route(sample);
+            String[] legacy = legacyRoute(sample);
+            boolean same = route.getIntent().name().equals(legacy[0]) && route.getLicenseNumber().equals(legacy[1]);
+            System.out.printf("%-18s %-16s %s  %s%n", route.getIntent(), route.getLicenseNumber(),
+                    same ? "==" : "!= " + legacy[0] + "/" + legacy[1], sample);
+        }
+
+        // Warm up both paths, then measure
+        long sink = run(router, messages / 4) + runLegacy(messages / 4);
+
+        long start = System.nanoTime();
+        sink += runLegacy(messages);
+        long legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        sink += run(router, messages);
+        long routerNanos = System.nanoTime() - start;
+
+        report("contains + regex", messages, legacyNanos);
+        report("IntentRouter", messages, routerNanos);
+        System.out.printf("Speed-up: %.1fx (checksum %d)%n", (double) legacyNanos / routerNanos, sink);
+    }
+
+    private static void checkScanner(IntentRouter router, int inputs) {
+        Random random = new Random(42);
+        for (int n = 0; n < inputs; n++) {
+            StringBuilder input = new StringBuilder();
+            for (int candidates = random.nextInt(4); candidates > 0; candidates--) {
+                append(input, random, LETTERS, 1 + random.nextInt(6));
+                append(input, random, SEPARATORS, 1);
+                append(input, random, "0123456789", 2 + random.nextInt(4));
+                append(input, random, SEPARATORS, 1);
+                append(input, random, "0123456789", 2 + random.nextInt(7));
+                append(input, random, SEPARATORS + LETTERS, random.nextInt(3));
+            }
+            String message = input.toString();
+
+            List<String> expected = new ArrayList<>();
+            Matcher matcher = LICENSE_NUMBER.matcher(message);
+            while (matcher.find()) {
+                expected.add(matcher.group().toUpperCase());
+            }
+            List<String> actual = router.route(message).getLicenseNumbers();
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("License-number scanner differs from " + LICENSE_NUMBER.pattern()
+                        + " for \"" + message + "\": " + actual + " instead of " + expected);
+            }
+        }
+        System.out.println("License-number scanner agrees with " + LICENSE_NUMBER.pattern() + " on " + inputs + " random inputs.");
+    }
+
+    private static void append(StringBuilder input, Random random, String chars, int count) {
+        for (int i = 0; i < count; i++) {
+            input.append(chars.charAt(random.nextInt(chars.length())));
+        }
+    }
+
+    private static long run(IntentRouter router, int messages) {
+        long sink = 0;
+        for (int i = 0; i < messages; i++) {
+            IntentRouter.Route route = router.route(SAMPLES[i % SAMPLES.length]);
+            sink += route.getIntent().ordinal() + route.getLicenseNumber().length();
+        }
+        return sink;
+    }
+
+    private static long runLegacy(int messages) {
+        long sink = 0;
+        for (int i = 0; i < messages; i++) {
+            String[] route = legacyRoute(SAMPLES[i % SAMPLES.length]);
+            sink += route[0].length() + route[1].length();
+        }
+        return sink;
+    }
+
+    // The routing that ChatbotController.answer/extractLicenseNumber used to do
+    private static String[] legacyRoute(String userInput) {
+        String lowerInput = userInput.toLowerCase();
+        if (lowerInput.contains("status of") || lowerInput.contains("valid")) {
+            Pattern pattern = Pattern.compile("[A-Z]{2,4}-\\d{4}-\\d{4,6}");
+            Matcher matcher = pattern.matcher(lowerInput.toUpperCase());
+            return new String[]{"LICENSE_VALIDITY", matcher.find() ? matcher.group(0) : ""};
+        } else if (lowerInput.contains("expiring") || lowerInput.contains("reminders")) {
+            return new String[]{"RENEWAL_REMINDERS", ""};
+        }
+        return new String[]{"FAQ", ""};
+    }
+
+    private static void report(String label, int messages, long nanos) {
+        System.out.printf("%-18s %9d messages in %8.1f ms (%6.0f ns/message)%n",
+                label, messages, nanos / 1_000_000.0, (double) nanos / messages);
+    }
+}
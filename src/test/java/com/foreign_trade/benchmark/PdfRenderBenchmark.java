@@ -0,0 +1,85 @@
+package com.foreign_trade.benchmark;
+
+import com.foreign_trade.model.License;
+import com.foreign_trade.service.PdfGenerator;
+import com.itextpdf.text.DocumentException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+
+/**
+ * Compares PdfGenerator layout mode (full document per license) against template mode
+ * (variable fields stamped onto the cached static page). No database or disk is involved:
+ * PDFs are written to a discarding stream. Allocation is measured per thread through the
+ * HotSpot ThreadMXBean.
+ * Usage: PdfRenderBenchmark [licenses] [warmupLicenses]
+ */
+public class PdfRenderBenchmark {
+
+    public static void main(String[] args) throws DocumentException, IOException {
+        int licenses = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        PdfGenerator layout = new PdfGenerator(false);
+        PdfGenerator template = new PdfGenerator(true);
+
+        run(layout, warmup);
+        run(template, warmup);
+
+        long[] layoutResult = run(layout, licenses);
+        long[] templateResult = run(template, licenses);
+
+        report("layout", licenses, layoutResult);
+        report("template", licenses, templateResult);
+        System.out.printf("Speed-up: %.1fx time, %.1fx allocation%n",
+                (double) layoutResult[0] / templateResult[0], (double) layoutResult[1] / templateResult[1]);
+    }
+
+    /** @return {elapsed nanos, allocated bytes, output bytes} */
+    private static long[] run(PdfGenerator generator, int licenses) throws DocumentException, IOException {
+        LocalDate issued = LocalDate.now();
+        CountingStream out = new CountingStream();
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < licenses; i++) {
+            License license = new License(i, i % 1000, "IND-" + issued.getYear() + "-" + (10000 + i),
+                    issued, issued.plusDays(365), "/signatures/" + (i % 1000) + ".png");
+            generator.writeLicensePdf(license, "Bench Firm " + (i % 1000), out);
+        }
+        long nanos = System.nanoTime() - start;
+        return new long[]{nanos, allocatedBytes() - allocatedBefore, out.count};
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0; // Not a HotSpot JVM: allocation is not reported
+    }
+
+    private static void report(String label, int licenses, long[] result) {
+        double millis = result[0] / 1_000_000.0;
+        System.out.printf("%-10s %6d PDFs in %9.1f ms (%7.1f us/PDF, %6.1f KB allocated/PDF, %5d bytes/PDF)%n",
+                label, licenses, millis, result[0] / 1000.0 / licenses,
+                result[1] / 1024.0 / licenses, result[2] / licenses);
+    }
+
+    /** Discards the PDF bytes, only counting them. */
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
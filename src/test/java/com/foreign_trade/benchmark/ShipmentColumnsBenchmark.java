@@ -0,0 +1,92 @@
+package com.foreign_trade.benchmark;
+
+import com.foreign_trade.dao.ShipmentColumns;
+import com.foreign_trade.dao.ShipmentColumns.Dimension;
+import com.foreign_trade.dao.ShipmentColumns.Filter;
+import com.foreign_trade.dao.ShipmentColumns.Group;
+import com.foreign_trade.dao.ShipmentColumns.Measure;
+import com.foreign_trade.model.Shipment;
+import com.foreign_trade.model.Shipment.ShipmentStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares analytics queries on ShipmentColumns with the same queries as streams over List<Shipment>,
+ * on synthetic shipments: insured cost per destination, and one filtered sum. No database is needed.
+ * Usage: ShipmentColumnsBenchmark [shipments] [rounds]
+ */
+public class ShipmentColumnsBenchmark {
+
+    private static final String[] DESTINATIONS = {"Germany", "France", "Japan", "Brazil", "Kenya", "Canada", "India", "Chile"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        ShipmentStatus[] statuses = ShipmentStatus.values();
+        List<Shipment> shipments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shipments.add(new Shipment(i + 1, 1 + random.nextInt(5000), "Product " + random.nextInt(200), "Origin",
+                    DESTINATIONS[random.nextInt(DESTINATIONS.length)], 1 + random.nextInt(1000), random.nextDouble() * 50_000,
+                    start.plusDays(random.nextInt(2000)), statuses[random.nextInt(statuses.length)], random.nextBoolean()));
+        }
+        ShipmentColumns columns = ShipmentColumns.of(shipments);
+        LocalDate from = LocalDate.of(2022, 1, 1);
+        LocalDate to = LocalDate.of(2022, 12, 31);
+
+        // Same answers both ways
+        Map<String, Double> expected = groupWithStreams(shipments);
+        for (Group group : columns.groupBy(Dimension.DESTINATION, new Filter().insured(true))) {
+            if (Math.abs(group.getTotalCost() - expected.get(group.getKey())) > 1e-6 * group.getTotalCost()) {
+                throw new IllegalStateException("Mismatch for " + group.getKey());
+            }
+        }
+
+        long streamGroupNanos = Long.MAX_VALUE;
+        long columnGroupNanos = Long.MAX_VALUE;
+        long streamSumNanos = Long.MAX_VALUE;
+        long columnSumNanos = Long.MAX_VALUE;
+        double sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            long t = System.nanoTime();
+            sink += groupWithStreams(shipments).size();
+            streamGroupNanos = Math.min(streamGroupNanos, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            sink += columns.groupBy(Dimension.DESTINATION, new Filter().insured(true)).size();
+            columnGroupNanos = Math.min(columnGroupNanos, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            sink += shipments.parallelStream()
+                    .filter(s -> "Japan".equals(s.getDestination()) && s.getStatus() == ShipmentStatus.SHIPPED
+                            && !s.getExportDate().isBefore(from) && !s.getExportDate().isAfter(to))
+                    .mapToDouble(Shipment::getTotalCost).sum();
+            streamSumNanos = Math.min(streamSumNanos, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            sink += columns.sum(Measure.TOTAL_COST,
+                    new Filter().destination("Japan").status(ShipmentStatus.SHIPPED).exportedBetween(from, to));
+            columnSumNanos = Math.min(columnSumNanos, System.nanoTime() - t);
+        }
+
+        System.out.printf("Shipments:                %d (columns use ~%.1f MB)%n", count, columns.getMemoryBytes() / 1e6);
+        System.out.printf("Insured cost by dest.:    streams %.1f ms, columns %.1f ms%n",
+                streamGroupNanos / 1e6, columnGroupNanos / 1e6);
+        System.out.printf("Filtered sum (Japan/2022): streams %.1f ms, columns %.1f ms%n",
+                streamSumNanos / 1e6, columnSumNanos / 1e6);
+        System.out.println("(checksum " + (long) sink + ")");
+    }
+
+    private static Map<String, Double> groupWithStreams(List<Shipment> shipments) {
+        return shipments.parallelStream()
+                .filter(Shipment::isHasInsurance)
+                .collect(Collectors.groupingBy(Shipment::getDestination, Collectors.summingDouble(Shipment::getTotalCost)));
+    }
+}